@@ -0,0 +1,36 @@
+package trianglesolver.bench;
+
+import java.util.List;
+import trianglesolver.util.TSFigure;
+import trianglesolver.util.TSFigureGenerator;
+import trianglesolver.util.TSSegment;
+
+final class TSBenchFigures {
+
+    static final long SEED = 20160501L;
+
+    private TSBenchFigures() {
+        //only static helpers
+    }
+
+    static List<TSSegment> segments(String shape, int size, long seed) {
+        //figures growing with size, before their segments are split at the crossings
+        TSFigureGenerator generator = new TSFigureGenerator(seed);
+        switch (shape) {
+            case "random": //crossings everywhere
+                return generator.segments(TSFigureGenerator.Family.RANDOM, size);
+            case "grid": //many collinear chains, triangles grow with the fourth power of the rows, 5 to 30 rows for the sizes run
+                return generator.segments(TSFigureGenerator.Family.GRID, Math.max(2, size / 4));
+            case "fan": //triangles grow with the square of the spokes
+                return generator.segments(TSFigureGenerator.Family.FAN, size);
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+    }
+
+    static TSFigure figure(String shape, int size, long seed) {
+        TSFigure figure = new TSFigure();
+        TSFigureGenerator.insert(figure, segments(shape, size, seed));
+        return figure;
+    }
+}
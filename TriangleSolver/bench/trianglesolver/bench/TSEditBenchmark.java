@@ -0,0 +1,75 @@
+package trianglesolver.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import trianglesolver.util.TSFigure;
+import trianglesolver.util.TSFigureGenerator;
+import trianglesolver.util.TSSegment;
+import trianglesolver.util.TSVertex;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TSEditBenchmark {
+
+    //building a figure segment by segment, every invocation starts from an empty one
+    @Param({"random", "grid", "fan"})
+    public String shape;
+
+    @Param({"20", "60", "120"})
+    public int size;
+
+    private List<TSSegment> drawn;
+    private double[] split; //ends of the basic segments of the finished figure
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        drawn = TSBenchFigures.segments(shape, size, TSBenchFigures.SEED);
+        List<TSSegment> basic = TSBenchFigures.figure(shape, size, TSBenchFigures.SEED).getBasicSegments();
+        split = new double[4 * basic.size()];
+        for (int s = 0; s < basic.size(); ++s) {
+            split[4 * s] = basic.get(s).getVertexA().getX();
+            split[4 * s + 1] = basic.get(s).getVertexA().getY();
+            split[4 * s + 2] = basic.get(s).getVertexB().getX();
+            split[4 * s + 3] = basic.get(s).getVertexB().getY();
+        }
+    }
+
+    @Benchmark
+    public int insert() {
+        //what the editor board does for every drawn segment: snap its ends, split it and the segments it crosses
+        TSFigure figure = new TSFigure();
+        TSFigureGenerator.insert(figure, drawn);
+        return figure.getBasicSegments().size();
+    }
+
+    @Benchmark
+    public int addSegments() {
+        //segments which are already split, like those read from a file
+        TSFigure figure = new TSFigure();
+        List<TSSegment> segments = new ArrayList<>(split.length / 4);
+        for (int i = 0; i < split.length; i += 4) {
+            segments.add(new TSSegment(new TSVertex(split[i], split[i + 1]), new TSVertex(split[i + 2], split[i + 3])));
+        }
+        for (TSSegment s : segments) {
+            figure.addSegment(s);
+        }
+        return figure.getBasicSegments().size();
+    }
+}
@@ -0,0 +1,79 @@
+package trianglesolver.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import trianglesolver.util.TSFigure;
+import trianglesolver.util.TSSolveHandle;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TSFileBenchmark {
+
+    //.ts files with and without the solution kept in them
+    @Param({"random", "grid", "fan"})
+    public String shape;
+
+    @Param({"20", "60", "120"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean solved;
+
+    private TSFigure figure;
+    private Path directory;
+    private Path written;
+    private Path read;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        figure = TSBenchFigures.figure(shape, size, TSBenchFigures.SEED);
+        if (solved) {
+            TSSolveHandle handle = figure.lock();
+            handle.await();
+            figure.unlock();
+        }
+        directory = Files.createTempDirectory("tsbench");
+        written = directory.resolve("written.ts");
+        read = directory.resolve("read.ts");
+        figure.exportToFile(read.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(written);
+        Files.deleteIfExists(read);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public long exportToFile() throws IOException {
+        figure.exportToFile(written.toString());
+        return Files.size(written);
+    }
+
+    @Benchmark
+    public int importFromfile() throws IOException {
+        TSFigure imported = new TSFigure();
+        imported.importFromfile(read.toString());
+        return imported.getBasicSegments().size();
+    }
+}
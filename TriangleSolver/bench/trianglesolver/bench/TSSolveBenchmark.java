@@ -0,0 +1,58 @@
+package trianglesolver.bench;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import trianglesolver.util.TSFigure;
+import trianglesolver.util.TSSolveHandle;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TSSolveBenchmark {
+
+    //a whole solve from lock() on: the figure store, extended segments and triangle enumeration
+    @Param({"random", "grid", "fan"})
+    public String shape;
+
+    @Param({"20", "60", "120"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private TSFigure figure;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        figure = TSBenchFigures.figure(shape, size, TSBenchFigures.SEED);
+        if (parallel) {
+            figure.setPool(ForkJoinPool.commonPool());
+        }
+    }
+
+    @Benchmark
+    public int solve() throws InterruptedException {
+        TSSolveHandle handle = figure.lock();
+        try {
+            handle.await();
+            return handle.getTrianglesFound();
+        } finally {
+            figure.unlock();
+        }
+    }
+}
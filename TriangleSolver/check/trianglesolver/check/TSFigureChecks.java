@@ -0,0 +1,356 @@
+package trianglesolver.check;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import trianglesolver.util.TSFigure;
+import trianglesolver.util.TSFigureGenerator;
+import trianglesolver.util.TSSegment;
+import trianglesolver.util.TSSegmentInserter;
+import trianglesolver.util.TSSolveHandle;
+import trianglesolver.util.TSTriangle;
+import trianglesolver.util.TSVertex;
+
+public class TSFigureChecks {
+
+    //regression checks of figure topology, run by 'ant check', exits with 1 when one fails
+    private static final long TIMEOUT = 60; //seconds for one figure, a figure which doesn't finish fails its check
+
+    private final ExecutorService runner = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task);
+            thread.setDaemon(true); //a hanging check must not keep the program alive
+            return thread;
+        }
+    });
+    private int failed = 0;
+
+    public static void main(String[] args) {
+        TSFigureChecks checks = new TSFigureChecks();
+        checks.concurrentLines();
+        checks.pentagrams();
+        checks.walkOverRounding();
+        checks.families();
+        checks.extents();
+        checks.extensions();
+        System.out.println(checks.failed == 0 ? "All checks passed" : checks.failed + " checks failed");
+        System.exit(checks.failed == 0 ? 0 : 1);
+    }
+
+    private void concurrentLines() {
+        //n lines through one point cross there once: 2n segments around one center vertex
+        for (int n : new int[]{2, 3, 5, 8, 16}) {
+            for (boolean rounded : new boolean[]{false, true}) {
+                List<TSSegment> lines = new ArrayList<>();
+                for (int i = 0; i < n; ++i) {
+                    double angle = Math.PI * i / n;
+                    double x = 500 - 400 * Math.cos(angle);
+                    double y = 500 - 400 * Math.sin(angle);
+                    if (rounded) { //whole ends, the lines still meet exactly in the middle
+                        x = Math.round(x);
+                        y = Math.round(y);
+                    }
+                    lines.add(new TSSegment(new TSVertex(x, y), new TSVertex(1000 - x, 1000 - y)));
+                }
+                expect("star" + n + (rounded ? " rounded" : ""), insert(lines), 2 * n, 2 * n + 1);
+            }
+        }
+    }
+
+    private void pentagrams() {
+        //every line of a star polygon crosses two others inside, n points and n crossings
+        for (int n : new int[]{5, 7}) {
+            List<TSSegment> lines = new ArrayList<>();
+            TSVertex[] points = new TSVertex[n];
+            for (int i = 0; i < n; ++i) {
+                points[i] = new TSVertex(500 + 400 * Math.cos(2 * Math.PI * i / n), 500 + 400 * Math.sin(2 * Math.PI * i / n));
+            }
+            for (int i = 0; i < n; ++i) {
+                lines.add(new TSSegment(points[i], points[(i + 2) % n]));
+            }
+            expect("pentagram" + n, insert(lines), 3 * n, 2 * n);
+        }
+    }
+
+    private void walkOverRounding() {
+        //figures drawn before crossings were shared have centers a rounding apart, a line through them used to loop
+        final TSFigure figure = new TSFigure();
+        TSVertex[] v = {new TSVertex(100.0, 500.0), new TSVertex(500.0, 500.0), new TSVertex(500.00000000000006, 500.0),
+            new TSVertex(900.0, 500.0), new TSVertex(176.39320225002103, 264.8858990830107), new TSVertex(500.0, 500.0),
+            new TSVertex(823.606797749979, 735.1141009169893), new TSVertex(376.39320225002103, 119.5773934819386),
+            new TSVertex(623.606797749979, 880.4226065180615)};
+        int[][] drawn = {{0, 1}, {2, 3}, {4, 5}, {2, 6}, {1, 2}, {7, 1}, {5, 2}, {1, 5}, {5, 8}};
+        for (int[] s : drawn) {
+            figure.addSegment(new TSSegment(v[s[0]], v[s[1]]));
+        }
+        TSFigure inserted = within("walk over rounding", new Callable<TSFigure>() {
+            @Override
+            public TSFigure call() {
+                new TSSegmentInserter(figure).insert(new TSVertex(623.6067977499789, 119.57739348193854), new TSVertex(376.3932022500211, 880.4226065180615));
+                return figure;
+            }
+        });
+        if (inserted != null) {
+            check("walk over rounding", inserted.getBasicSegments().size() > drawn.length, "the line was not inserted");
+        }
+    }
+
+    private void families() {
+        //every generated figure is clean and its solve reports every triangle once
+        for (final TSFigureGenerator.Family family : TSFigureGenerator.Family.values()) {
+            for (final int n : new int[]{2, 6, 10}) {
+                String name = family + " " + n;
+                TSFigure figure = within(name, new Callable<TSFigure>() {
+                    @Override
+                    public TSFigure call() {
+                        return new TSFigureGenerator(7).figure(family, n);
+                    }
+                });
+                if (figure == null || !clean(name, figure)) {
+                    continue;
+                }
+                TSSolveHandle solve = solve(name, figure);
+                if (solve == null) {
+                    continue;
+                }
+                int stored = figure.getStore().getVertexCount();
+                Set<String> distinct = new HashSet<>();
+                for (TSTriangle t : solve.getTriangles()) {
+                    String[] corners = {place(t.getVertexA()), place(t.getVertexB()), place(t.getVertexC())};
+                    Arrays.sort(corners);
+                    distinct.add(corners[0] + " " + corners[1] + " " + corners[2]);
+                }
+                figure.unlock();
+                check(name + " solve", solve.getStatus() == TSSolveHandle.Status.COMPLETED && distinct.size() == solve.getTrianglesFound()
+                        && stored == places(figure).size(), solve.getStatus() + ", " + solve.getTrianglesFound() + " triangles reported, "
+                        + distinct.size() + " distinct, " + stored + " vertices solved in " + places(figure).size() + " places");
+            }
+        }
+    }
+
+    private void extents() {
+        //the same figure drawn a million times larger splits its segments the same way and as fast
+        final int n = 40;
+        List<TSFigure> figures = new ArrayList<>();
+        for (final double side : new double[]{1000, 1e7}) {
+            figures.add(within("RANDOM " + n + " side " + side, new Callable<TSFigure>() {
+                @Override
+                public TSFigure call() {
+                    return new TSFigureGenerator(7, side).figure(TSFigureGenerator.Family.RANDOM, n);
+                }
+            }));
+        }
+        if (figures.get(0) != null && figures.get(1) != null) {
+            int small = figures.get(0).getBasicSegments().size();
+            int large = figures.get(1).getBasicSegments().size();
+            check("RANDOM " + n + " extents", small == large, small + " segments at side 1000, " + large + " at side 1e7");
+        }
+    }
+
+    private void extensions() {
+        //the extended segments and the triangles are the same sets the first solver found, whatever order they come in
+        //and whatever pool solves them, an extended segment between the ends of a basic one is not added a second time
+        List<TSFigure> figures = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (TSFigureGenerator.Family family : TSFigureGenerator.Family.values()) {
+            for (int n : new int[]{2, 4}) {
+                figures.add(new TSFigureGenerator(7).figure(family, n));
+                names.add(family + " " + n);
+            }
+        }
+        figures.add(overlapping());
+        names.add("overlapping basic segments");
+        for (int f = 0; f < figures.size(); ++f) {
+            TSFigure figure = figures.get(f);
+            TSReferenceSolve reference = new TSReferenceSolve(figure.getBasicSegments(), 0.005);
+            Set<String> pairs = reference.getPairs();
+            Set<String> triangles = reference.getTriangles();
+            for (ForkJoinPool pool : new ForkJoinPool[]{null, new ForkJoinPool(4)}) {
+                String name = names.get(f) + (pool == null ? "" : " in a pool") + " extension";
+                figure.setPool(pool);
+                TSSolveHandle solve = solve(name, figure);
+                if (solve == null) {
+                    continue;
+                }
+                Set<String> found = new HashSet<>();
+                int again = 0;
+                for (TSSegment s : figure.getExtendedSegments()) { //the basic segments come first
+                    if (!found.add(TSReferenceSolve.key(s.getVertexA(), s.getVertexB()))) {
+                        again++;
+                    }
+                }
+                Set<String> solved = new HashSet<>();
+                for (TSTriangle t : solve.getTriangles()) {
+                    solved.add(TSReferenceSolve.key(t.getVertexA(), t.getVertexB(), t.getVertexC()));
+                }
+                figure.unlock();
+                if (pool != null) {
+                    pool.shutdown();
+                }
+                check(name, again == 0 && found.equals(pairs) && solved.equals(triangles) && solve.getTrianglesFound() == triangles.size(),
+                        found.size() + " segments (" + again + " twice) against " + pairs.size() + ", " + solved.size() + " triangles ("
+                        + solve.getTrianglesFound() + " reported) against " + triangles.size());
+            }
+        }
+    }
+
+    private static TSFigure overlapping() {
+        //a line drawn in pieces and again over some of them, the spans are basic and derivable at once
+        TSFigure figure = new TSFigure();
+        TSVertex[] line = new TSVertex[5];
+        for (int i = 0; i < line.length; ++i) {
+            line[i] = new TSVertex(100 + 200 * i, 500);
+        }
+        for (int i = 0; i + 1 < line.length; ++i) {
+            figure.addSegment(new TSSegment(line[i], line[i + 1]));
+        }
+        figure.addSegment(new TSSegment(line[0], line[2]));
+        figure.addSegment(new TSSegment(line[1], line[4]));
+        TSVertex top = new TSVertex(500, 100);
+        for (TSVertex v : line) {
+            figure.addSegment(new TSSegment(top, v));
+        }
+        return figure;
+    }
+
+    private TSSolveHandle solve(String name, TSFigure figure) {
+        //null when it didn't finish in time
+        final TSSolveHandle solve = figure.lock();
+        Boolean done = within(name, new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws InterruptedException {
+                solve.await();
+                return true;
+            }
+        });
+        if (done == null) {
+            solve.cancel();
+            figure.unlock();
+            return null;
+        }
+        return solve;
+    }
+
+    private TSFigure insert(final List<TSSegment> segments) {
+        return within("insert", new Callable<TSFigure>() {
+            @Override
+            public TSFigure call() {
+                TSFigure figure = new TSFigure();
+                TSSegmentInserter inserter = new TSSegmentInserter(figure);
+                for (TSSegment s : segments) {
+                    inserter.insert(s.getVertexA(), s.getVertexB());
+                }
+                return figure;
+            }
+        });
+    }
+
+    private <T> T within(String name, Callable<T> task) {
+        //null when the task failed or didn't finish in time, the check is counted as failed then
+        Future<T> result = runner.submit(task);
+        try {
+            return result.get(TIMEOUT, TimeUnit.SECONDS);
+        } catch (TimeoutException ex) {
+            result.cancel(true);
+            check(name, false, "did not finish in " + TIMEOUT + " s");
+        } catch (ExecutionException ex) {
+            check(name, false, ex.getCause().toString());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            check(name, false, "interrupted");
+        }
+        return null;
+    }
+
+    private void expect(String name, TSFigure figure, int segments, int vertices) {
+        if (figure == null) {
+            return;
+        }
+        Topology found = new Topology(figure);
+        check(name, found.isClean() && found.segments == segments && found.vertices == vertices,
+                "expected " + segments + " segments and " + vertices + " vertices, found " + found);
+    }
+
+    private boolean clean(String name, TSFigure figure) {
+        Topology found = new Topology(figure);
+        check(name, found.isClean(), "found " + found);
+        return found.isClean();
+    }
+
+    private static Set<String> places(TSFigure figure) {
+        Set<String> places = new HashSet<>();
+        for (TSSegment s : figure.getBasicSegments()) {
+            places.add(place(s.getVertexA()));
+            places.add(place(s.getVertexB()));
+        }
+        return places;
+    }
+
+    private static class Topology {
+
+        //no two vertices in one place, no segment without length and none drawn twice
+        private final int segments;
+        private final int vertices;
+        private final int places;
+        private int empty = 0;
+        private int twice = 0;
+
+        private Topology(TSFigure figure) {
+            List<TSSegment> basic = figure.getBasicSegments();
+            Set<TSVertex> ends = Collections.newSetFromMap(new IdentityHashMap<TSVertex, Boolean>());
+            Set<String> pairs = new HashSet<>();
+            for (TSSegment s : basic) {
+                ends.add(s.getVertexA());
+                ends.add(s.getVertexB());
+                String a = place(s.getVertexA());
+                String b = place(s.getVertexB());
+                if (a.equals(b)) {
+                    empty++;
+                }
+                if (!pairs.add(a.compareTo(b) < 0 ? a + " " + b : b + " " + a)) {
+                    twice++;
+                }
+            }
+            segments = basic.size();
+            vertices = ends.size();
+            places = places(figure).size();
+        }
+
+        private boolean isClean() {
+            return vertices == places && empty == 0 && twice == 0;
+        }
+
+        @Override
+        public String toString() {
+            return segments + " segments, " + vertices + " vertices in " + places + " places, " + empty + " without length, " + twice + " drawn twice";
+        }
+    }
+
+    private void check(String name, boolean passed, String message) {
+        if (passed) {
+            System.out.println("ok " + name);
+        }
+        else {
+            failed++;
+            System.out.println("FAILED " + name + ": " + message);
+        }
+    }
+
+    private static String place(TSVertex v) {
+        return v.getX() + "," + v.getY();
+    }
+}
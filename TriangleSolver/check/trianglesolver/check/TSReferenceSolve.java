@@ -0,0 +1,150 @@
+package trianglesolver.check;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import trianglesolver.util.TSSegment;
+import trianglesolver.util.TSVertex;
+
+class TSReferenceSolve {
+
+    //the first solver of the project, every segment pair scanned until no segment is added, kept to check the fast one against
+    private final double tolerance;
+    private final List<TSSegment> extended = new ArrayList<>();
+
+    TSReferenceSolve(List<TSSegment> basic, double tolerance) {
+        this.tolerance = tolerance;
+        extended.addAll(basic);
+        Map<TSVertex, Set<TSVertex>> pairs = new IdentityHashMap<>();
+        boolean added;
+        do {
+            added = false;
+            List<TSSegment> buffer = new ArrayList<>();
+            for (TSSegment sA : extended) {
+                for (TSSegment sB : extended) {
+                    if (sA == sB) {
+                        continue;
+                    }
+                    TSSegment segment;
+                    TSVertex common;
+                    if (sA.getVertexA() == sB.getVertexA()) {
+                        segment = new TSSegment(sA.getVertexB(), sB.getVertexB());
+                        common = sA.getVertexA();
+                    }
+                    else if (sA.getVertexA() == sB.getVertexB()) {
+                        segment = new TSSegment(sA.getVertexB(), sB.getVertexA());
+                        common = sA.getVertexA();
+                    }
+                    else if (sA.getVertexB() == sB.getVertexA()) {
+                        segment = new TSSegment(sA.getVertexA(), sB.getVertexB());
+                        common = sA.getVertexB();
+                    }
+                    else if (sA.getVertexB() == sB.getVertexB()) {
+                        segment = new TSSegment(sA.getVertexA(), sB.getVertexA());
+                        common = sA.getVertexB();
+                    }
+                    else {
+                        continue;
+                    }
+                    if (lies(common, segment) && !linked(pairs, segment.getVertexA(), segment.getVertexB())) {
+                        buffer.add(segment);
+                        link(pairs, segment.getVertexA(), segment.getVertexB());
+                        link(pairs, segment.getVertexB(), segment.getVertexA());
+                        added = true;
+                    }
+                }
+            }
+            extended.addAll(buffer);
+        } while (added);
+    }
+
+    Set<String> getPairs() {
+        //every basic and extended segment as the places of its ends
+        Set<String> found = new HashSet<>();
+        for (TSSegment s : extended) {
+            found.add(key(s.getVertexA(), s.getVertexB()));
+        }
+        return found;
+    }
+
+    Set<String> getTriangles() {
+        //two segments from one corner and a third closing them, none of the corners on the opposite side
+        Set<String> found = new HashSet<>();
+        for (TSSegment t1 : extended) {
+            for (TSSegment t2 : extended) {
+                if (t1 == t2) {
+                    continue;
+                }
+                TSVertex common;
+                TSVertex missingA;
+                TSVertex missingB;
+                if (t1.getVertexA() == t2.getVertexA()) {
+                    common = t1.getVertexA();
+                    missingA = t1.getVertexB();
+                    missingB = t2.getVertexB();
+                }
+                else if (t1.getVertexA() == t2.getVertexB()) {
+                    common = t1.getVertexA();
+                    missingA = t1.getVertexB();
+                    missingB = t2.getVertexA();
+                }
+                else if (t1.getVertexB() == t2.getVertexA()) {
+                    common = t1.getVertexB();
+                    missingA = t1.getVertexA();
+                    missingB = t2.getVertexB();
+                }
+                else if (t1.getVertexB() == t2.getVertexB()) {
+                    common = t1.getVertexB();
+                    missingA = t1.getVertexA();
+                    missingB = t2.getVertexA();
+                }
+                else {
+                    continue;
+                }
+                for (TSSegment t3 : extended) {
+                    if ((t3.getVertexA() == missingA || t3.getVertexA() == missingB) && (t3.getVertexB() == missingA || t3.getVertexB() == missingB)
+                            && !lies(common, t3) && !lies(missingA, t2) && !lies(missingB, t1)) {
+                        found.add(key(common, missingA, missingB));
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private boolean lies(TSVertex v, TSSegment segment) {
+        TSVertex projection = segment.getVertexProjection(v);
+        return projection.isCloseEnough(v, tolerance) && segment.contains(projection);
+    }
+
+    private static boolean linked(Map<TSVertex, Set<TSVertex>> pairs, TSVertex a, TSVertex b) {
+        Set<TSVertex> around = pairs.get(a);
+        return around != null && around.contains(b);
+    }
+
+    private static void link(Map<TSVertex, Set<TSVertex>> pairs, TSVertex a, TSVertex b) {
+        if (!pairs.containsKey(a)) {
+            pairs.put(a, Collections.newSetFromMap(new IdentityHashMap<TSVertex, Boolean>()));
+        }
+        pairs.get(a).add(b);
+    }
+
+    static String key(TSVertex... corners) {
+        //the same for every order of the corners
+        String[] places = new String[corners.length];
+        for (int i = 0; i < corners.length; ++i) {
+            places[i] = corners[i].getX() + "," + corners[i].getY();
+        }
+        Arrays.sort(places);
+        StringBuilder sb = new StringBuilder();
+        for (String place : places) {
+            sb.append(sb.length() == 0 ? "" : " ").append(place);
+        }
+        return sb.toString();
+    }
+}
@@ -1,10 +1,14 @@
 package trianglesolver;
 
+import trianglesolver.cli.TSCommandLine;
 import trianglesolver.gui.TSEditorWindow;
 
 public class TriangleSolver {
 
     public static void main(String[] args) {
+        if (args.length > 0) { //commands run headless, the editor classes are never loaded
+            System.exit(new TSCommandLine(System.out, System.err).run(args));
+        }
         TSEditorWindow window = new TSEditorWindow();
     }
 
@@ -0,0 +1,154 @@
+package trianglesolver.cli;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import trianglesolver.util.TSFigure;
+import trianglesolver.util.TSFigureStore;
+import trianglesolver.util.TSSolveCache;
+import trianglesolver.util.TSSolveHandle;
+
+public class TSBatchSolver {
+
+    private static final String HEADER = "file\tstatus\tvertices\tsegments\ttriangles\tload ms\tsolve ms\tphases\terror";
+
+    private final double tolerance;
+    private final long budget;
+    private final int workers;
+    private final TSSolveCache cache;
+
+    public TSBatchSolver(double tolerance, long budget, int workers) {
+        this(tolerance, budget, workers, null);
+    }
+
+    public TSBatchSolver(double tolerance, long budget, int workers, TSSolveCache cache) {
+        //figures with the same geometry, in this batch or in the directory of the cache, are solved once
+        this.tolerance = tolerance;
+        this.budget = budget;
+        this.workers = Math.max(1, workers);
+        this.cache = cache;
+    }
+
+    public int solveAll(Path directory, Path report, PrintStream out) throws IOException {
+        //every figure is solved on one worker, the report keeps the order of the files, returns the number of figures not solved
+        final List<Path> figures = new ArrayList<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile() && file.getFileName().toString().endsWith(".ts")) {
+                    figures.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(figures);
+        ExecutorService pool = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "TSBatchSolver");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long start = System.nanoTime();
+        int failed = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            List<Future<String[]>> results = new ArrayList<>(figures.size());
+            for (final Path figure : figures) {
+                results.add(pool.submit(new Callable<String[]>() {
+                    @Override
+                    public String[] call() {
+                        return solve(figure);
+                    }
+                }));
+            }
+            writer.write(HEADER);
+            writer.newLine();
+            for (int i = 0; i < results.size(); ++i) {
+                String[] line;
+                try {
+                    line = results.get(i).get();
+                } catch (ExecutionException ex) { //solve() reports its own failures, this is only a safety net
+                    line = failure(figures.get(i), "FAILED", ex.getCause());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Batch interrupted", ex);
+                }
+                if (!line[1].equals(TSSolveHandle.Status.COMPLETED.name())) {
+                    failed++;
+                }
+                writer.write(String.join("\t", line));
+                writer.newLine();
+                writer.flush(); //a report of an interrupted batch keeps the figures done so far
+                out.println((i + 1) + "/" + figures.size() + " " + line[0] + ": " + line[1] + (line[4].isEmpty() ? "" : ", triangles: " + line[4]));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        out.println("solved " + (figures.size() - failed) + " of " + figures.size() + " figures in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms on " + workers + " workers, report: " + report);
+        if (cache != null) {
+            out.println("cache hits: " + cache.getHits() + " (" + cache.getLoads() + " from disk), misses: " + cache.getMisses());
+        }
+        return failed;
+    }
+
+    private String[] solve(Path path) {
+        TSFigure figure = new TSFigure(tolerance, null); //one thread per figure, the workers already use every core
+        figure.setCache(cache);
+        try {
+            long start = System.nanoTime();
+            try {
+                figure.importFromfile(path.toString());
+            } catch (IOException | RuntimeException | OutOfMemoryError ex) {
+                return failure(path, "MALFORMED", ex);
+            }
+            long loaded = System.nanoTime();
+            TSSolveHandle solve = figure.lock(budget, TimeUnit.MILLISECONDS);
+            try {
+                solve.await();
+            } catch (InterruptedException ex) {
+                solve.cancel();
+                Thread.currentThread().interrupt();
+                return failure(path, "CANCELLED", ex);
+            }
+            TSFigureStore store = figure.getStore();
+            StringBuilder phases = new StringBuilder();
+            for (Map.Entry<String, Long> phase : solve.getPhaseTimes(TimeUnit.MICROSECONDS).entrySet()) {
+                phases.append(phases.length() == 0 ? "" : ";").append(phase.getKey()).append('=').append(phase.getValue() / 1000.0);
+            }
+            return new String[]{path.toString(), solve.getStatus().name(),
+                Integer.toString(store.getVertexCount()), Integer.toString(store.getSegmentCount()),
+                Integer.toString(solve.getTrianglesFound()), Long.toString(TimeUnit.NANOSECONDS.toMillis(loaded - start)),
+                Long.toString(solve.getElapsed(TimeUnit.MILLISECONDS)), phases.toString(), message(solve.getFailure())};
+        } finally {
+            figure.unlock();
+        }
+    }
+
+    private static String[] failure(Path path, String status, Throwable ex) {
+        return new String[]{path.toString(), status, "", "", "", "", "", "", message(ex)};
+    }
+
+    private static String message(Throwable ex) {
+        //one line without tabs, so the report stays one figure per line
+        return ex == null ? "" : ex.toString().replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,311 @@
+package trianglesolver.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import trianglesolver.util.TSFigure;
+import trianglesolver.util.TSFigureGenerator;
+import trianglesolver.util.TSFigureStore;
+import trianglesolver.util.TSSolveCache;
+import trianglesolver.util.TSSolveHandle;
+import trianglesolver.util.TSSolveMetrics;
+import trianglesolver.util.TSTriangleWriter;
+
+public class TSCommandLine {
+
+    private static final long CACHE_SIZE = 64L << 20; //solutions kept in memory, the directory keeps all of them
+
+    private final PrintStream out;
+    private final PrintStream err;
+
+    public TSCommandLine(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    public int run(String[] args) {
+        //returns the exit code: 0 when solved, 1 when the solve didn't complete, 2 for wrong arguments
+        if (args.length > 0 && args[0].equals("solve")) {
+            return solve(args);
+        }
+        if (args.length > 0 && args[0].equals("batch")) {
+            return batch(args);
+        }
+        if (args.length > 0 && args[0].equals("generate")) {
+            return generate(args);
+        }
+        usage();
+        return 2;
+    }
+
+    private int solve(String[] args) {
+        boolean list = false;
+        double tolerance = 0.005;
+        long budget = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output = null;
+        TSTriangleWriter.Format format = TSTriangleWriter.Format.CSV;
+        String cache = null;
+        String path = null;
+        try {
+            for (int i = 1; i < args.length; ++i) {
+                switch (args[i]) {
+                    case "-list":
+                        list = true;
+                        break;
+                    case "-out":
+                        output = args[++i];
+                        break;
+                    case "-cache":
+                        cache = args[++i];
+                        break;
+                    case "-format":
+                        format = TSTriangleWriter.Format.valueOf(args[++i].toUpperCase());
+                        break;
+                    case "-tolerance":
+                        tolerance = Double.parseDouble(args[++i]);
+                        break;
+                    case "-budget":
+                        budget = Long.parseLong(args[++i]);
+                        break;
+                    case "-threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        if (args[i].startsWith("-") || path != null) {
+                            throw new IllegalArgumentException("Unknown argument " + args[i]);
+                        }
+                        path = args[i];
+                }
+            }
+            if (path == null) {
+                throw new IllegalArgumentException("Missing figure file");
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+            err.println(ex instanceof ArrayIndexOutOfBoundsException ? "Missing value of " + args[args.length - 1] : ex.getMessage());
+            usage();
+            return 2;
+        }
+
+        TSFigure figure = new TSFigure(tolerance, null);
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        figure.setPool(pool);
+        if (cache != null) {
+            figure.setCache(new TSSolveCache(CACHE_SIZE, Paths.get(cache)));
+        }
+        TSTriangleWriter writer = null;
+        try {
+            if (output != null) { //triangles go straight to the file, only kept in memory to be listed
+                writer = new TSTriangleWriter(Paths.get(output), format);
+                figure.setUpdater(writer);
+                figure.setRetainTriangles(list);
+            }
+        } catch (IOException ex) {
+            err.println("Can't write " + output + ": " + ex);
+            return 1;
+        }
+        try {
+            long start = System.nanoTime();
+            try {
+                figure.importFromfile(path);
+            } catch (IOException | RuntimeException ex) {
+                err.println("Can't load " + path + ": " + ex);
+                return 1;
+            }
+            long loaded = System.nanoTime();
+            TSSolveHandle solve = figure.lock(budget, TimeUnit.MILLISECONDS);
+            try {
+                solve.await();
+            } catch (InterruptedException ex) {
+                solve.cancel();
+                Thread.currentThread().interrupt();
+                return 1;
+            }
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ex) {
+                    err.println("Can't write " + output + ": " + ex);
+                    return 1;
+                }
+            }
+            TSFigureStore store = figure.getStore();
+            out.println("figure: " + path);
+            out.println("vertices: " + store.getVertexCount() + ", segments: " + store.getSegmentCount());
+            out.println("load: " + TimeUnit.NANOSECONDS.toMillis(loaded - start) + " ms");
+            TSSolveMetrics metrics = solve.getMetrics();
+            Map<String, Long> cpu = metrics.getCpuTimes(TimeUnit.MICROSECONDS);
+            for (Map.Entry<String, Long> phase : metrics.getWallTimes(TimeUnit.MICROSECONDS).entrySet()) {
+                Long spent = cpu.get(phase.getKey());
+                out.println("phase " + phase.getKey() + ": " + phase.getValue() / 1000.0 + " ms"
+                        + (spent == null ? "" : " (cpu " + spent / 1000.0 + " ms)"));
+            }
+            out.println("solve: " + solve.getElapsed(TimeUnit.MILLISECONDS) + " ms");
+            out.println("status: " + solve.getStatus() + (solve.getFailure() == null ? "" : " " + solve.getFailure()));
+            out.println("triangles: " + solve.getTrianglesFound());
+            out.println("pairs examined: " + metrics.getPairsExamined() + ", projections: " + metrics.getProjections()
+                    + ", rejected as collinear: " + metrics.getCollinearRejected());
+            if (figure.getCache() != null) {
+                out.println("cache hits: " + figure.getCache().getHits() + ", misses: " + figure.getCache().getMisses());
+            }
+            if (writer != null) {
+                out.println("written: " + writer.getWritten() + " to " + output);
+            }
+            if (list) {
+                int[] triangles = solve.getTriangleIndices();
+                for (int i = 0; i < triangles.length; i += 3) {
+                    out.println(triangles[i] + " " + triangles[i + 1] + " " + triangles[i + 2] + "  "
+                            + point(store, triangles[i]) + " " + point(store, triangles[i + 1]) + " " + point(store, triangles[i + 2]));
+                }
+            }
+            return solve.getStatus() == TSSolveHandle.Status.COMPLETED ? 0 : 1;
+        } finally {
+            figure.unlock();
+            if (pool != null) {
+                pool.shutdown();
+            }
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ex) {
+                    //already reported
+                }
+            }
+        }
+    }
+
+    private int batch(String[] args) {
+        double tolerance = 0.005;
+        long budget = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String report = "report.tsv";
+        String cache = null;
+        String path = null;
+        try {
+            for (int i = 1; i < args.length; ++i) {
+                switch (args[i]) {
+                    case "-tolerance":
+                        tolerance = Double.parseDouble(args[++i]);
+                        break;
+                    case "-budget":
+                        budget = Long.parseLong(args[++i]);
+                        break;
+                    case "-threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-report":
+                        report = args[++i];
+                        break;
+                    case "-cache":
+                        cache = args[++i];
+                        break;
+                    default:
+                        if (args[i].startsWith("-") || path != null) {
+                            throw new IllegalArgumentException("Unknown argument " + args[i]);
+                        }
+                        path = args[i];
+                }
+            }
+            if (path == null) {
+                throw new IllegalArgumentException("Missing directory");
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+            err.println(ex instanceof ArrayIndexOutOfBoundsException ? "Missing value of " + args[args.length - 1] : ex.getMessage());
+            usage();
+            return 2;
+        }
+        try {
+            int failed = new TSBatchSolver(tolerance, budget, threads,
+                    cache == null ? null : new TSSolveCache(CACHE_SIZE, Paths.get(cache))).solveAll(Paths.get(path), Paths.get(report), out);
+            return failed == 0 ? 0 : 1;
+        } catch (IOException ex) {
+            err.println("Batch failed: " + ex);
+            return 1;
+        }
+    }
+
+    private int generate(String[] args) {
+        long seed = 0;
+        double side = 1000;
+        TSFigureGenerator.Family family = null;
+        int size = 0;
+        String path = null;
+        try {
+            for (int i = 1; i < args.length; ++i) {
+                switch (args[i]) {
+                    case "-seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "-side":
+                        side = Double.parseDouble(args[++i]);
+                        break;
+                    default:
+                        if (args[i].startsWith("-") || path != null) {
+                            throw new IllegalArgumentException("Unknown argument " + args[i]);
+                        }
+                        if (family == null) {
+                            family = TSFigureGenerator.Family.valueOf(args[i].toUpperCase());
+                        }
+                        else if (size == 0) {
+                            size = Integer.parseInt(args[i]);
+                        }
+                        else {
+                            path = args[i];
+                        }
+                }
+            }
+            if (path == null) {
+                throw new IllegalArgumentException("Missing family, size or figure file");
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+            err.println(ex instanceof ArrayIndexOutOfBoundsException ? "Missing value of " + args[args.length - 1] : ex.getMessage());
+            usage();
+            return 2;
+        }
+        try {
+            long start = System.nanoTime();
+            TSFigure figure = new TSFigureGenerator(seed, side).write(family, size, path);
+            out.println("figure: " + path);
+            out.println("vertices: " + figure.getVertices().size() + ", segments: " + figure.getBasicSegments().size());
+            out.println("generate: " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+            return 0;
+        } catch (IOException ex) {
+            err.println("Can't write " + path + ": " + ex);
+            return 1;
+        } catch (IllegalArgumentException ex) {
+            err.println(ex.getMessage());
+            usage();
+            return 2;
+        }
+    }
+
+    private static String point(TSFigureStore store, int v) {
+        return store.getX(v) + "," + store.getY(v);
+    }
+
+    private void usage() {
+        err.println("usage: TriangleSolver                                   opens the editor");
+        err.println("       TriangleSolver solve [options] <figure.ts>       solves the figure without a display");
+        err.println("       TriangleSolver batch [options] <directory>       solves every .ts figure below the directory");
+        err.println("       TriangleSolver generate [options] <family> <n> <figure.ts>");
+        err.println("                                                        writes a figure of the family: grid, fan, star,");
+        err.println("                                                        complete, random or collinear");
+        err.println("options:");
+        err.println("  -list              print every triangle as vertex indices and coordinates");
+        err.println("  -out <file>        stream the triangles of a solve to the file as they are found");
+        err.println("  -format <f>        csv or binary (big endian int triples), vertex indices of the triangles (default csv)");
+        err.println("  -tolerance <t>     distance of vertices treated as one (default 0.005)");
+        err.println("  -budget <ms>       stop the solve after the time budget (default none)");
+        err.println("  -threads <n>       solver threads, figures solved at once in a batch (default all processors)");
+        err.println("  -report <file>     report of a batch, one tab separated line per figure (default report.tsv)");
+        err.println("  -cache <dir>       keep solutions in the directory, figures solved before are read from it");
+        err.println("  -seed <s>          seed of a generated figure, the same seed gives the same figure (default 0)");
+        err.println("  -side <d>          side of the square a generated figure fills (default 1000)");
+        err.println("java options:");
+        err.println("  -Dtrianglesolver.jmx=true  publish the metrics of the latest solve as trianglesolver:type=Solver");
+        err.println("                             from the first solve on, otherwise once jconsole or a jmx agent runs");
+    }
+}
@@ -0,0 +1,9 @@
+package trianglesolver.gui;
+
+import java.util.List;
+import trianglesolver.util.TSTriangle;
+
+public interface BatchStatusUpdater extends StatusUpdater {
+
+    public void updateBatch(String msg, List<TSTriangle> triangles);
+}
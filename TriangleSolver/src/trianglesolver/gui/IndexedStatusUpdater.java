@@ -0,0 +1,9 @@
+package trianglesolver.gui;
+
+import trianglesolver.util.TSFigureStore;
+import trianglesolver.util.TSIntBuffer;
+
+public interface IndexedStatusUpdater extends StatusUpdater {
+
+    public void updateIndices(String msg, TSFigureStore store, TSIntBuffer triangles); //triples of vertex indices into the store, only valid during the call
+}
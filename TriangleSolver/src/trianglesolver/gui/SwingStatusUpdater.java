@@ -0,0 +1,72 @@
+package trianglesolver.gui;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.Timer;
+import trianglesolver.util.TSTriangle;
+
+public class SwingStatusUpdater implements BatchStatusUpdater {
+
+    private final BatchStatusUpdater target;
+    private final Timer timer;
+    private String message = null;
+    private List<TSTriangle> pending = new ArrayList<>();
+    private boolean finished = false;
+
+    public SwingStatusUpdater(BatchStatusUpdater target) {
+        this(target, 30);
+    }
+
+    public SwingStatusUpdater(BatchStatusUpdater target, int framesPerSecond) {
+        this.target = target;
+        timer = new Timer(1000 / Math.max(1, framesPerSecond), new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent action) {
+                publish();
+            }
+        });
+        timer.setCoalesce(true);
+        timer.start();
+    }
+
+    @Override
+    synchronized public void update(String msg, TSTriangle triangle) {
+        message = msg;
+        if (triangle != null) {
+            pending.add(triangle);
+        }
+    }
+
+    @Override
+    synchronized public void updateBatch(String msg, List<TSTriangle> triangles) {
+        message = msg;
+        pending.addAll(triangles);
+    }
+
+    @Override
+    synchronized public void finish() {
+        finished = true;
+    }
+
+    private void publish() { //runs on the event dispatch thread, at most once per frame
+        String msg;
+        List<TSTriangle> batch;
+        boolean done;
+        synchronized (this) {
+            msg = message;
+            batch = pending;
+            done = finished;
+            message = null;
+            pending = new ArrayList<>();
+        }
+        if (msg != null || !batch.isEmpty()) {
+            target.updateBatch(msg, batch);
+        }
+        if (done) {
+            timer.stop();
+            target.finish();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package trianglesolver.gui;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import trianglesolver.util.TSTriangle;
+import trianglesolver.util.TSTriangleStore;
+
+class TSDensityMap {
+
+    //how many found triangles cover every pixel, kept as per row differences so a triangle costs its height, not its area
+    private static final int TILE_ROWS = 32;
+    private static final int[] PALETTE = palette();
+
+    private final ForkJoinPool pool;
+    private int width = 0;
+    private int height = 0;
+    private long changes = -1; //of the viewport the spans were computed for
+    private int added = 0; //triangles of the store already in the spans
+    private int[] spans; //width + 1 differences per row
+    private int[] coverage;
+    private int[] pixels;
+    private BufferedImage image;
+    private double[] corners = new double[0]; //screen coordinates of the triangles being added
+
+    TSDensityMap(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    BufferedImage update(TSTriangleStore triangles, TSViewport view, int width, int height) {
+        //only triangles found since the last call are rasterized unless the view changed
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        if (width != this.width || height != this.height) {
+            this.width = width;
+            this.height = height;
+            spans = new int[(width + 1) * height];
+            coverage = new int[width * height];
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            added = 0;
+        }
+        if (changes != view.getChanges() || triangles.size() < added) {
+            Arrays.fill(spans, 0);
+            changes = view.getChanges();
+            added = 0;
+        }
+        final int count = triangles.size() - added;
+        if (count > 0) {
+            if (corners.length < 6 * count) {
+                corners = new double[Math.max(6 * count, 2 * corners.length)];
+            }
+            for (int i = 0; i < count; ++i) {
+                TSTriangle t = triangles.get(added + i);
+                corners[6 * i] = view.screenX(t.getVertexA().getX());
+                corners[6 * i + 1] = view.screenY(t.getVertexA().getY());
+                corners[6 * i + 2] = view.screenX(t.getVertexB().getX());
+                corners[6 * i + 3] = view.screenY(t.getVertexB().getY());
+                corners[6 * i + 4] = view.screenX(t.getVertexC().getX());
+                corners[6 * i + 5] = view.screenY(t.getVertexC().getY());
+            }
+            added += count;
+        }
+        final int tiles = (height + TILE_ROWS - 1) / TILE_ROWS;
+        List<Callable<Integer>> parts = new ArrayList<>(tiles);
+        for (int tile = 0; tile < tiles; ++tile) {
+            final int from = tile * TILE_ROWS;
+            final int to = Math.min(height, from + TILE_ROWS);
+            parts.add(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    for (int i = 0; i < count; ++i) {
+                        span(i, from, to);
+                    }
+                    return accumulate(from, to);
+                }
+            });
+        }
+        int max = 0;
+        for (int part : invoke(parts)) {
+            max = Math.max(max, part);
+        }
+        final int top = max;
+        List<Callable<Integer>> colors = new ArrayList<>(tiles);
+        for (int tile = 0; tile < tiles; ++tile) {
+            final int from = tile * TILE_ROWS * width;
+            final int to = Math.min(height, (tile + 1) * TILE_ROWS) * width;
+            colors.add(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    for (int p = from; p < to; ++p) {
+                        pixels[p] = PALETTE[top == 0 ? 0 : (int) ((coverage[p] * 255L + top - 1) / top)];
+                    }
+                    return 0;
+                }
+            });
+        }
+        invoke(colors);
+        return image;
+    }
+
+    private void span(int i, int from, int to) {
+        //rows of the tile whose pixel centers are inside the triangle, between its long edge and one of the short ones
+        double x0 = corners[6 * i];
+        double y0 = corners[6 * i + 1];
+        double x1 = corners[6 * i + 2];
+        double y1 = corners[6 * i + 3];
+        double x2 = corners[6 * i + 4];
+        double y2 = corners[6 * i + 5];
+        double t;
+        if (y0 > y1) {
+            t = x0;
+            x0 = x1;
+            x1 = t;
+            t = y0;
+            y0 = y1;
+            y1 = t;
+        }
+        if (y1 > y2) {
+            t = x1;
+            x1 = x2;
+            x2 = t;
+            t = y1;
+            y1 = y2;
+            y2 = t;
+        }
+        if (y0 > y1) {
+            t = x0;
+            x0 = x1;
+            x1 = t;
+            t = y0;
+            y0 = y1;
+            y1 = t;
+        }
+        int first = (int) Math.max(from, Math.ceil(y0 - 0.5));
+        int middle = (int) Math.max(from, Math.min(to, Math.ceil(y1 - 0.5)));
+        int last = (int) Math.min(to, Math.ceil(y2 - 0.5));
+        if (first >= last) {
+            return;
+        }
+        double slope = (x2 - x0) / (y2 - y0);
+        if (first < middle) {
+            rows(first, middle, x0, y0, slope, x0, y0, (x1 - x0) / (y1 - y0));
+        }
+        if (Math.max(first, middle) < last) {
+            rows(Math.max(first, middle), last, x0, y0, slope, x1, y1, (x2 - x1) / (y2 - y1));
+        }
+    }
+
+    private void rows(int from, int to, double ax, double ay, double aSlope, double bx, double by, double bSlope) {
+        //left and right ends are rounded alike, a pixel on the shared edge of two triangles is counted once
+        for (int y = from; y < to; ++y) {
+            double center = y + 0.5;
+            double a = ax + aSlope * (center - ay);
+            double b = bx + bSlope * (center - by);
+            int start = (int) Math.max(0, Math.min(width, Math.ceil(Math.min(a, b) - 0.5)));
+            int end = (int) Math.max(0, Math.min(width, Math.ceil(Math.max(a, b) - 0.5)));
+            if (start < end) {
+                spans[y * (width + 1) + start]++;
+                spans[y * (width + 1) + end]--;
+            }
+        }
+    }
+
+    private int accumulate(int from, int to) {
+        int max = 0;
+        for (int y = from; y < to; ++y) {
+            int run = 0;
+            for (int x = 0; x < width; ++x) {
+                run += spans[y * (width + 1) + x];
+                coverage[y * width + x] = run;
+                max = Math.max(max, run);
+            }
+        }
+        return max;
+    }
+
+    private List<Integer> invoke(List<Callable<Integer>> tasks) {
+        List<Future<Integer>> futures = new ArrayList<>(tasks.size());
+        for (Callable<Integer> task : tasks) {
+            futures.add(pool.submit(task));
+        }
+        List<Integer> results = new ArrayList<>(tasks.size());
+        for (Future<Integer> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Drawing interrupted", ex);
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException(ex.getCause());
+            }
+        }
+        return results;
+    }
+
+    private static int[] palette() {
+        //transparent where nothing was found, then blue, cyan, green, yellow and red
+        int[] palette = new int[256];
+        int[][] stops = {{0, 0, 255}, {0, 255, 255}, {0, 255, 0}, {255, 255, 0}, {255, 0, 0}};
+        for (int i = 1; i < 256; ++i) {
+            double position = (i - 1) / 254.0 * (stops.length - 1);
+            int stop = Math.min(stops.length - 2, (int) position);
+            double t = position - stop;
+            int r = (int) Math.round(stops[stop][0] + (stops[stop + 1][0] - stops[stop][0]) * t);
+            int g = (int) Math.round(stops[stop][1] + (stops[stop + 1][1] - stops[stop][1]) * t);
+            int b = (int) Math.round(stops[stop][2] + (stops[stop + 1][2] - stops[stop][2]) * t);
+            palette[i] = 0xA0000000 | r << 16 | g << 8 | b;
+        }
+        return palette;
+    }
+}
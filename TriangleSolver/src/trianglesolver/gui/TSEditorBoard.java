@@ -5,22 +5,40 @@ import static java.awt.BasicStroke.*;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import static java.awt.event.MouseEvent.*;
 import java.awt.event.MouseMotionAdapter;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
+import java.awt.image.BufferedImage;
 import javax.swing.JComponent;
 import trianglesolver.util.TSFigure;
+import trianglesolver.util.TSGeometry;
 import trianglesolver.util.TSSegment;
+import trianglesolver.util.TSSegmentInserter;
 import trianglesolver.util.TSMode;
 import trianglesolver.util.TSVertex;
 
 public class TSEditorBoard extends JComponent {
 
+    private static final Color CHECKER_LIGHT = new Color(195, 195, 195);
+    private static final Color CHECKER_DARK = new Color(127, 127, 127);
+    private static final Color SEGMENT = new Color(72, 72, 72, 72);
+    private static final Color VERTEX = new Color(255, 127, 39);
+    private static final Color NEW_SEGMENT = new Color(0, 162, 232);
+    private static final Color NEW_VERTEX = new Color(181, 230, 29);
+    private static final BasicStroke SEGMENT_STROKE = new BasicStroke(3, CAP_ROUND, JOIN_ROUND);
+    private static final BasicStroke NEW_SEGMENT_STROKE = new BasicStroke(1, CAP_ROUND, JOIN_ROUND);
+    private static final int NEW_SEGMENT_MARGIN = 4; //vertex ovals reach 3 pixels past the ends
+
     private Graphics2D graphics2D;
+    private BufferedImage layer; //background and figure, drawn again only when one of them changes
+    private boolean layerValid;
+    private long layerModifications;
+    private long layerChanges;
+    private final TSViewport view = new TSViewport();
+    private TSFigureGrid grid; //rebuilt with the layer after every edit
     private TSMode mode;
     private boolean showVertices;
     private TSFigure figure;
@@ -41,6 +59,7 @@ public class TSEditorBoard extends JComponent {
         MA_Start = null;
         MA_Current = null;
 
+        view.attach(this);
         addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent event) {
@@ -52,12 +71,13 @@ public class TSEditorBoard extends JComponent {
                 if (event.getButton() == BUTTON1) {
                     if (mode == TSMode.TS_DRAW) { //register clicking only for drawing
                         if (!MA_active) { //start drawing new segment
-                            MA_Start = new TSVertex(event.getX(), event.getY());
+                            MA_Start = new TSVertex(view.toFigureX(event.getX()), view.toFigureY(event.getY()));
                             if (figure != null) {
+                                double field = DRAW_VERTEX_FIELD / (view.getScale() * view.getScale()); //the tolerance is in screen pixels
                                 double distV = Double.MAX_VALUE;
                                 double distS = Double.MAX_VALUE;
                                 TSVertex vertexV = null;
-                                TSVertex vertexS = null;
+                                TSSegment segmentS = null;
                                 for (TSSegment s : figure.getBasicSegments()) { //find the closest vertex to current
                                     double dA = MA_Start.getDistance(s.getVertexA());
                                     double dB = MA_Start.getDistance(s.getVertexB());
@@ -71,33 +91,34 @@ public class TSEditorBoard extends JComponent {
                                         vertexV = s.getVertexB();
                                     }
                                     if (dS < distS) { //dS
-                                        TSVertex vProj = s.getVertexProjection(MA_Start);
-                                        if (s.contains(vProj)) {
+                                        double t = TSGeometry.projection(s.getVertexA().getX(), s.getVertexA().getY(), s.getVertexB().getX(), s.getVertexB().getY(), MA_Start.getX(), MA_Start.getY());
+                                        if (0 <= t && t <= 1) {
                                             distS = dS;
-                                            vertexS = vProj;
+                                            segmentS = s;
                                         }
                                     }
                                 }
-                                if (distV < DRAW_VERTEX_FIELD) {
+                                if (distV < field) {
                                     MA_Start = vertexV;
                                 }
                                 else {
-                                    if (distV < DRAW_TOLERANCE * DRAW_TOLERANCE) {
+                                    if (distV < field) {
                                         MA_Start = vertexV;
                                     }
-                                    if (distS < DRAW_TOLERANCE * DRAW_TOLERANCE && distS < distV) {
-                                        MA_Start = vertexS;
+                                    if (distS < field && distS < distV) {
+                                        MA_Start = segmentS.getVertexProjection(MA_Start);
                                     }
                                 }
                             }
-                            MA_Current = new TSVertex(event.getX(), event.getY());
+                            MA_Current = new TSVertex(view.toFigureX(event.getX()), view.toFigureY(event.getY()));
                         }
                         else { //stop drawing new segment
                             if (figure != null) {
+                                double field = DRAW_VERTEX_FIELD / (view.getScale() * view.getScale()); //the tolerance is in screen pixels
                                 double distV = Double.MAX_VALUE;
                                 double distS = Double.MAX_VALUE;
                                 TSVertex vertexV = null;
-                                TSVertex vertexS = null;
+                                TSSegment segmentS = null;
                                 for (TSSegment s : figure.getBasicSegments()) { //find the closest vertex to current
                                     double dA = MA_Current.getDistance(s.getVertexA());
                                     double dB = MA_Current.getDistance(s.getVertexB());
@@ -111,22 +132,22 @@ public class TSEditorBoard extends JComponent {
                                         vertexV = s.getVertexB();
                                     }
                                     if (dS < distS) { //dS
-                                        TSVertex vProj = s.getVertexProjection(MA_Current);
-                                        if (s.contains(vProj)) {
+                                        double t = TSGeometry.projection(s.getVertexA().getX(), s.getVertexA().getY(), s.getVertexB().getX(), s.getVertexB().getY(), MA_Current.getX(), MA_Current.getY());
+                                        if (0 <= t && t <= 1) {
                                             distS = dS;
-                                            vertexS = vProj;
+                                            segmentS = s;
                                         }
                                     }
                                 }
-                                if (distV < DRAW_VERTEX_FIELD) {
+                                if (distV < field) {
                                     MA_Current = vertexV;
                                 }
                                 else {
-                                    if (distV < DRAW_TOLERANCE * DRAW_TOLERANCE) {
+                                    if (distV < field) {
                                         MA_Current = vertexV;
                                     }
-                                    if (distS < DRAW_TOLERANCE * DRAW_TOLERANCE && distS < distV) {
-                                        MA_Current = vertexS;
+                                    if (distS < field && distS < distV) {
+                                        MA_Current = segmentS.getVertexProjection(MA_Current);
                                     }
                                 }
                                 insertNewSegment(MA_Start, MA_Current);
@@ -145,14 +166,10 @@ public class TSEditorBoard extends JComponent {
             @Override
             public void mouseMoved(MouseEvent event) {
                 if ((MA_active && mode == TSMode.TS_DRAW)) { //refresh only when in drawing mode
-                    MA_Current.setX(event.getX());
-                    MA_Current.setY(event.getY());
-                    repaint();
+                    moveSegment(event);
                 }
                 if (MA_active && mode == TSMode.TS_MOVE) { //refresh only when in move mode
-                    MA_Current.setX(event.getX());
-                    MA_Current.setY(event.getY());
-                    repaint();
+                    moveSegment(event);
                 }
             }
         });
@@ -163,6 +180,9 @@ public class TSEditorBoard extends JComponent {
     }
 
     public void setVerticesVisibility(boolean b) {
+        if (showVertices != b) {
+            layerValid = false;
+        }
         showVertices = b;
     }
 
@@ -171,29 +191,83 @@ public class TSEditorBoard extends JComponent {
         MA_Start = null;
         MA_Current = null;
         figure = f;
+        grid = null;
+        layerValid = false;
+    }
+
+    public void fitToFigure() {
+        updateLayer();
+        view.fit(grid, getWidth(), getHeight());
+        repaint();
+    }
+
+    public void resetView() {
+        view.reset();
+        repaint();
     }
 
     @Override
     protected void paintComponent(Graphics graphics) {
         super.paintComponent(graphics);
+        updateLayer();
         graphics2D = (Graphics2D) graphics;
-        clear();
-        drawFigure();
+        graphics2D.drawImage(layer, 0, 0, null); //clipped to the repainted area
         drawSegment();
     }
 
+    private void updateLayer() {
+        //the figure is drawn again when it was edited, imported or replaced, zoomed, panned or the board was resized
+        int width = Math.max(1, getWidth());
+        int height = Math.max(1, getHeight());
+        long modifications = figure == null ? 0 : figure.getModifications();
+        if (layer == null || layer.getWidth() != width || layer.getHeight() != height) {
+            GraphicsConfiguration configuration = getGraphicsConfiguration();
+            layer = configuration == null ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB) : configuration.createCompatibleImage(width, height);
+            layerValid = false;
+        }
+        if (figure != null && (grid == null || layerModifications != modifications)) {
+            grid = new TSFigureGrid(figure.getBasicSegments(), figure.getVertices());
+            layerValid = false;
+        }
+        if (!layerValid || layerModifications != modifications || layerChanges != view.getChanges()) {
+            graphics2D = layer.createGraphics();
+            try {
+                clear();
+                drawFigure();
+            } finally {
+                graphics2D.dispose();
+            }
+            layerModifications = modifications;
+            layerChanges = view.getChanges();
+            layerValid = true;
+        }
+    }
+
+    private void moveSegment(MouseEvent event) {
+        //only the area under the old and the new segment is painted
+        Rectangle dirty = segmentBounds();
+        MA_Current.setX(view.toFigureX(event.getX()));
+        MA_Current.setY(view.toFigureY(event.getY()));
+        dirty.add(segmentBounds());
+        repaint(dirty);
+    }
+
+    private Rectangle segmentBounds() {
+        Rectangle bounds = new Rectangle(view.toScreenX(MA_Start.getX()), view.toScreenY(MA_Start.getY()), 0, 0);
+        bounds.add(view.toScreenX(MA_Current.getX()), view.toScreenY(MA_Current.getY()));
+        bounds.grow(NEW_SEGMENT_MARGIN, NEW_SEGMENT_MARGIN);
+        return bounds;
+    }
+
     private void clear() {
         if (figure == null) { //procedural drawing checkboard pattern
             int cX = getWidth() / 10 + 1;
             int cY = getHeight() / 10 + 1;
+            graphics2D.setPaint(CHECKER_DARK);
+            graphics2D.fillRect(0, 0, cX * 10, cY * 10);
+            graphics2D.setPaint(CHECKER_LIGHT);
             for (int y = 0; y < cY; ++y) {
-                for (int x = 0; x < cX; ++x) {
-                    if (y % 2 != x % 2) {
-                        graphics2D.setPaint(new Color(195, 195, 195));
-                    }
-                    else {
-                        graphics2D.setPaint(new Color(127, 127, 127));
-                    }
+                for (int x = (y + 1) % 2; x < cX; x += 2) {
                     graphics2D.fillRect(x * 10, y * 10, 10, 10);
                 }
             }
@@ -205,23 +279,13 @@ public class TSEditorBoard extends JComponent {
     }
 
     private void drawFigure() {
-        if (figure != null) {
-            graphics2D.setStroke(new BasicStroke(3, CAP_ROUND, JOIN_ROUND));
-            for (TSSegment s : figure.getBasicSegments()) {
-                graphics2D.setPaint(new Color(72, 72, 72, 72));
-                int Ax = (int) (s.getVertexA().getX() + 0.5);
-                int Ay = (int) (s.getVertexA().getY() + 0.5);
-                int Bx = (int) (s.getVertexB().getX() + 0.5);
-                int By = (int) (s.getVertexB().getY() + 0.5);
-                graphics2D.drawLine(Ax, Ay, Bx, By);
-            }
+        if (figure != null) { //only the segments and vertices on screen
+            graphics2D.setStroke(SEGMENT_STROKE);
+            graphics2D.setPaint(SEGMENT);
+            grid.drawSegments(graphics2D, view, getWidth(), getHeight());
             if (showVertices) { //draw vertices
-                for (TSVertex v : figure.getVertices()) {
-                    int x = (int) (v.getX() + 0.5);
-                    int y = (int) (v.getY() + 0.5);
-                    graphics2D.setPaint(new Color(255, 127, 39));
-                    graphics2D.fillOval(x - 3, y - 3, 6, 6);
-                }
+                graphics2D.setPaint(VERTEX);
+                grid.drawVertices(graphics2D, view, getWidth(), getHeight(), 3);
             }
         }
     }
@@ -229,15 +293,15 @@ public class TSEditorBoard extends JComponent {
     private void drawSegment() {
         if (figure != null && !figure.isLocked()) {
             if (MA_Start != null && MA_Current != null) {
-                int Ax = (int) (MA_Start.getX() + 0.5);
-                int Ay = (int) (MA_Start.getY() + 0.5);
-                int Bx = (int) (MA_Current.getX() + 0.5);
-                int By = (int) (MA_Current.getY() + 0.5);
+                int Ax = view.toScreenX(MA_Start.getX());
+                int Ay = view.toScreenY(MA_Start.getY());
+                int Bx = view.toScreenX(MA_Current.getX());
+                int By = view.toScreenY(MA_Current.getY());
 
-                graphics2D.setStroke(new BasicStroke(1, CAP_ROUND, JOIN_ROUND));
-                graphics2D.setPaint(new Color(0, 162, 232));
+                graphics2D.setStroke(NEW_SEGMENT_STROKE);
+                graphics2D.setPaint(NEW_SEGMENT);
                 graphics2D.drawLine(Ax, Ay, Bx, By);
-                graphics2D.setPaint(new Color(181, 230, 29));
+                graphics2D.setPaint(NEW_VERTEX);
                 graphics2D.fillOval(Ax - 3, Ay - 3, 6, 6);
                 graphics2D.fillOval(Bx - 3, By - 3, 6, 6);
             }
@@ -245,221 +309,6 @@ public class TSEditorBoard extends JComponent {
     }
 
     private void insertNewSegment(TSVertex a, TSVertex b) {
-        if (a.isCloseEnough(b, 0)) { //both vertices are in the same place
-            return;
-        }
-        for (TSSegment s : figure.getBasicSegments()) {
-            boolean isA = false;
-            boolean isB = false;
-            if (a.isCloseEnough(s.getVertexA(), 0) || a.isCloseEnough(s.getVertexB(), 0)) {
-                isA = true;
-            }
-            if (b.isCloseEnough(s.getVertexA(), 0) || b.isCloseEnough(s.getVertexB(), 0)) {
-                isB = true;
-            }
-            if (isA && isB) { //redundant segment, do nothing
-                return;
-            }
-            if (s.contains(a) && s.contains(b)) {
-                return;
-            }
-        }
-        TSSegment newForA = null;
-        TSSegment newForB = null;
-        for (TSSegment s : figure.getBasicSegments()) { //solve vertex binding to segment
-            if (s.contains(a) && a != s.getVertexA() && a != s.getVertexB()) {
-                TSVertex segmentB = s.getVertexB();
-                s.setVertexB(a);
-                newForA = new TSSegment(a, segmentB);
-                TSSegment curr = new TSSegment(a, b);
-                if (curr.contains(s.getVertexA())) {
-                    a = s.getVertexA();
-                }
-                if (curr.contains(segmentB)) {
-                    a = segmentB;
-                }
-            }
-            if (s.contains(b) && b != s.getVertexA() && b != s.getVertexB()) {
-                TSVertex segmentB = s.getVertexB();
-                s.setVertexB(b);
-                newForB = new TSSegment(b, segmentB);
-                TSSegment curr = new TSSegment(a, b);
-                if (curr.contains(s.getVertexA())) {
-                    b = s.getVertexA();
-                }
-                if (curr.contains(segmentB)) {
-                    b = segmentB;
-                }
-            }
-        }
-        if (newForA != null) {
-            figure.addSegment(newForA);
-        }
-        if (newForB != null) {
-            figure.addSegment(newForB);
-        }
-        //solve overlapping segments (direction of solving overlaping is from point A to point B of new created segment)
-        List<TSSegment> toAdd = new ArrayList<>();
-        double originalA = (b.getY() - a.getY()) / (b.getX() - a.getX());
-        double originalB = a.getY() - originalA * a.getX();
-        boolean overrlapingOccured;
-        do {
-            if (a == b || a.isCloseEnough(b, 0.005)) {
-                break;
-            }
-            overrlapingOccured = false;
-            TSSegment closest = null;
-            double dist = Double.MAX_VALUE;
-            for (TSSegment s : figure.getBasicSegments()) { //find overlapping segment and reduce them
-                double As = (s.getVertexB().getY() - s.getVertexA().getY()) / (s.getVertexB().getX() - s.getVertexA().getX());
-                double Bs = s.getVertexA().getY() - As * s.getVertexA().getX();
-
-                if (As == originalA && Bs == originalB) { //two segments on the same line (possible overlapping)                                                        
-                    TSSegment originalSegment = new TSSegment(a, b);
-                    double distA = a.getDistance(s.getVertexA());
-                    double distB = a.getDistance(s.getVertexB());
-                    if (distA == 0.0 || distB == 0.0) { //one common vertex
-                        if (distA == 0.0) {
-                            if (originalSegment.contains(s.getVertexB())) {
-                                dist = 0;
-                                closest = s;
-                                break;
-                            }
-                            else if (s.contains(b)) {
-                                return;
-                            }
-                            else {
-                                continue;
-                            }
-                        }
-                        if (distB == 0.0) {
-                            if (originalSegment.contains(s.getVertexA())) {
-                                dist = 0;
-                                closest = s;
-                                break;
-                            }
-                            else if (s.contains(b)) {
-                                return;
-                            }
-                            else {
-                                continue;
-                            }
-                        }
-                    }
-                    if (originalSegment.contains(s.getVertexA())) { //vertex A is inside of new segment
-                        if (distA < dist) {
-                            dist = distA;
-                            closest = s;
-                        }
-                    }
-                    if (originalSegment.contains(s.getVertexB())) { //vertex B is inside of new segment
-                        if (distB < dist) {
-                            dist = distB;
-                            closest = s;
-                        }
-                    }
-                }
-            }
-            if (closest != null) {
-                overrlapingOccured = true;
-                TSSegment originalSegment = new TSSegment(a, b);
-                double distA = a.getDistance(closest.getVertexA());
-                double distB = a.getDistance(closest.getVertexB());
-                if (distA == 0.0 || distB == 0.0) { //one common vertex
-                    if (distA == 0.0) {
-                        a = new TSVertex(closest.getVertexB());
-                    }
-                    if (distB == 0.0) {
-                        a = new TSVertex(closest.getVertexA());
-                    }
-                    continue;
-                }
-                if (originalSegment.contains(closest.getVertexA()) && originalSegment.contains(closest.getVertexB())) {
-                    if (distA == dist) {
-                        toAdd.add(new TSSegment(a, closest.getVertexA()));
-                        a = closest.getVertexA();
-                        continue;
-                    }
-                    else {
-                        toAdd.add(new TSSegment(a, closest.getVertexB()));
-                        a = closest.getVertexB();
-                        continue;
-                    }
-                }
-                if (originalSegment.contains(closest.getVertexA())) {
-                    if (!closest.contains(a)) {
-                        toAdd.add(new TSSegment(a, closest.getVertexA()));
-                    }
-                    a = closest.getVertexA();
-                    continue;
-                }
-                if (originalSegment.contains(closest.getVertexB())) {
-                    if (!closest.contains(a)) {
-                        toAdd.add(new TSSegment(a, closest.getVertexB()));
-                    }
-                    a = closest.getVertexB();
-                    continue;
-                }
-            }
-            else {
-                toAdd.add(new TSSegment(a, b));
-            }
-        } while (overrlapingOccured);
-
-        //solve interestion of segments
-        for (TSSegment next : toAdd) {
-            List<TSIntersectingSegments> intersections = new ArrayList<>();
-            for (TSSegment s : figure.getBasicSegments()) { //find intersecting segments
-                if (next.getVertexA() != s.getVertexA() && next.getVertexB() != s.getVertexB() && next.getVertexA() != s.getVertexB() && next.getVertexB() != s.getVertexA()) {
-                    TSVertex v = next.getIntersection(s);
-                    if (v != null) {
-                        double dx = next.getVertexA().getX() - v.getX();
-                        double dy = next.getVertexA().getY() - v.getY();
-                        double distance = dx * dx + dy * dy;
-                        intersections.add(new TSIntersectingSegments(s, v, distance));
-                    }
-                }
-            }
-            if (!intersections.isEmpty()) { //resolve intersecting
-                intersections.sort(new Comparator<TSIntersectingSegments>() {
-                    @Override
-                    public int compare(TSIntersectingSegments t1, TSIntersectingSegments t2) {
-                        if (t1.distance > t2.distance) {
-                            return 1;
-                        }
-                        if (t1.distance < t2.distance) {
-                            return -1;
-                        }
-                        return 0;
-                    }
-                });
-                for (TSIntersectingSegments tsis : intersections) {
-                    TSVertex cross = tsis.intersection;
-                    TSVertex segmentB = tsis.segment.getVertexB();
-                    tsis.segment.setVertexB(cross);
-                    figure.addSegment(new TSSegment(cross, segmentB));
-                    figure.addSegment(new TSSegment(next.getVertexA(), cross));
-                    next.setVertexA(cross);
-                }
-            }
-            figure.addSegment(next);
-        }
-    }
-}
-
-class TSIntersectingSegments {
-
-    public TSSegment segment;
-    public TSVertex intersection;
-    public double distance;
-
-    public TSIntersectingSegments(TSSegment s, TSVertex v, double d) {
-        segment = s;
-        intersection = v;
-        distance = d;
-    }
-
-    private TSIntersectingSegments() {
-
+        new TSSegmentInserter(figure).insert(a, b);
     }
 }
@@ -32,6 +32,9 @@ public class TSEditorWindow extends JFrame {
     private final JMenuItem mfNew = new JMenuItem("New");
     private final JMenuItem mfLoad = new JMenuItem("Load");
     private final JMenuItem mfSave = new JMenuItem("Save");
+    private final JMenu menuView = new JMenu("View");
+    private final JMenuItem mvFit = new JMenuItem("Fit to figure");
+    private final JMenuItem mvReset = new JMenuItem("Actual size");
     private final JMenu menuSolver = new JMenu("Solver");
     private final JMenuItem msSolve = new JMenuItem("Solve");
     private final ButtonGroup rbGroup = new ButtonGroup();
@@ -65,6 +68,9 @@ public class TSEditorWindow extends JFrame {
         menuFile.add(mfNew);
         menuFile.add(mfLoad);
         menuFile.add(mfSave);
+        menuBar.add(menuView);
+        menuView.add(mvFit);
+        menuView.add(mvReset);
         menuBar.add(menuSolver);
         menuSolver.add(msSolve);
 
@@ -240,6 +246,18 @@ public class TSEditorWindow extends JFrame {
                 }
             }
         });
+        mvFit.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent action) {
+                board.fitToFigure();
+            }
+        });
+        mvReset.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent action) {
+                board.resetView();
+            }
+        });
         msSolve.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent action) {
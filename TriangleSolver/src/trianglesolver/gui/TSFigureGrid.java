@@ -0,0 +1,267 @@
+package trianglesolver.gui;
+
+import java.awt.Graphics2D;
+import java.util.Arrays;
+import java.util.List;
+import trianglesolver.util.TSIntBuffer;
+import trianglesolver.util.TSSegment;
+import trianglesolver.util.TSVertex;
+
+class TSFigureGrid {
+
+    //uniform grid over a snapshot of the figure, a paint only visits the cells on screen
+    private static final int MAX_SIDE = 512;
+    private static final int SCREEN_MARGIN = 4; //round caps and vertex ovals reach past the ends
+
+    private final double[] ax;
+    private final double[] ay;
+    private final double[] bx;
+    private final double[] by;
+    private final double[] vx;
+    private final double[] vy;
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+    private final int side;
+    private final double cell;
+    private final int[] segmentOffset; //segments passing through every cell (compressed rows)
+    private final int[] segmentCells;
+    private final int[] vertexOffset;
+    private final int[] vertexCells;
+    private final int[] seen;
+    private int stamp = 0;
+    private final TSIntBuffer visible = new TSIntBuffer();
+    private long[] pixels = new long[0]; //pixels already holding a dot, for level of detail
+
+    TSFigureGrid(List<TSSegment> segments, List<TSVertex> vertices) {
+        int count = segments.size();
+        ax = new double[count];
+        ay = new double[count];
+        bx = new double[count];
+        by = new double[count];
+        double lowX = Double.POSITIVE_INFINITY;
+        double lowY = Double.POSITIVE_INFINITY;
+        double highX = Double.NEGATIVE_INFINITY;
+        double highY = Double.NEGATIVE_INFINITY;
+        for (int s = 0; s < count; ++s) {
+            TSSegment segment = segments.get(s);
+            ax[s] = segment.getVertexA().getX();
+            ay[s] = segment.getVertexA().getY();
+            bx[s] = segment.getVertexB().getX();
+            by[s] = segment.getVertexB().getY();
+            lowX = Math.min(lowX, Math.min(ax[s], bx[s]));
+            lowY = Math.min(lowY, Math.min(ay[s], by[s]));
+            highX = Math.max(highX, Math.max(ax[s], bx[s]));
+            highY = Math.max(highY, Math.max(ay[s], by[s]));
+        }
+        vx = new double[vertices.size()];
+        vy = new double[vertices.size()];
+        for (int v = 0; v < vx.length; ++v) {
+            vx[v] = vertices.get(v).getX();
+            vy[v] = vertices.get(v).getY();
+            lowX = Math.min(lowX, vx[v]);
+            lowY = Math.min(lowY, vy[v]);
+            highX = Math.max(highX, vx[v]);
+            highY = Math.max(highY, vy[v]);
+        }
+        if (lowX > highX) {
+            lowX = lowY = highX = highY = 0;
+        }
+        minX = lowX;
+        minY = lowY;
+        maxX = highX;
+        maxY = highY;
+        side = (int) Math.max(1, Math.min(MAX_SIDE, Math.ceil(Math.sqrt(Math.max(count, vx.length)))));
+        double extent = Math.max(maxX - minX, maxY - minY);
+        cell = extent > 0 ? extent / side : 1;
+
+        TSIntBuffer covered = new TSIntBuffer(); //pairs of cell and segment
+        for (int s = 0; s < count; ++s) {
+            cover(s, covered);
+        }
+        segmentOffset = new int[side * side + 1];
+        segmentCells = new int[covered.size() / 2];
+        fill(covered, segmentOffset, segmentCells);
+        covered.clear();
+        for (int v = 0; v < vx.length; ++v) {
+            covered.add(row(vy[v]) * side + column(vx[v]));
+            covered.add(v);
+        }
+        vertexOffset = new int[side * side + 1];
+        vertexCells = new int[vx.length];
+        fill(covered, vertexOffset, vertexCells);
+        seen = new int[count];
+    }
+
+    boolean isEmpty() {
+        return ax.length == 0 && vx.length == 0;
+    }
+
+    double getMinX() {
+        return minX;
+    }
+
+    double getMinY() {
+        return minY;
+    }
+
+    double getMaxX() {
+        return maxX;
+    }
+
+    double getMaxY() {
+        return maxY;
+    }
+
+    void drawSegments(Graphics2D graphics, TSViewport view, int width, int height) {
+        //segments within a single pixel are drawn once per pixel, they all look the same
+        if (isEmpty() || !isOnScreen(view, width, height)) {
+            return;
+        }
+        clearPixels(width, height);
+        int from = column(view.toFigureX(-SCREEN_MARGIN));
+        int to = column(view.toFigureX(width + SCREEN_MARGIN));
+        int fromRow = row(view.toFigureY(-SCREEN_MARGIN));
+        int toRow = row(view.toFigureY(height + SCREEN_MARGIN));
+        if (++stamp == 0) {
+            Arrays.fill(seen, 0);
+            stamp = 1;
+        }
+        visible.clear();
+        for (int cy = fromRow; cy <= toRow; ++cy) {
+            for (int cx = from; cx <= to; ++cx) {
+                int c = cy * side + cx;
+                for (int i = segmentOffset[c]; i < segmentOffset[c + 1]; ++i) {
+                    int s = segmentCells[i];
+                    if (seen[s] != stamp) {
+                        seen[s] = stamp;
+                        visible.add(s);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < visible.size(); ++i) {
+            int s = visible.get(i);
+            int Ax = view.toScreenX(ax[s]);
+            int Ay = view.toScreenY(ay[s]);
+            int Bx = view.toScreenX(bx[s]);
+            int By = view.toScreenY(by[s]);
+            if (Ax == Bx && Ay == By && !mark(Ax, Ay, width, height)) {
+                continue;
+            }
+            graphics.drawLine(Ax, Ay, Bx, By);
+        }
+    }
+
+    void drawVertices(Graphics2D graphics, TSViewport view, int width, int height, int radius) {
+        if (isEmpty() || !isOnScreen(view, width, height)) {
+            return;
+        }
+        clearPixels(width, height);
+        int from = column(view.toFigureX(-SCREEN_MARGIN));
+        int to = column(view.toFigureX(width + SCREEN_MARGIN));
+        int fromRow = row(view.toFigureY(-SCREEN_MARGIN));
+        int toRow = row(view.toFigureY(height + SCREEN_MARGIN));
+        for (int cy = fromRow; cy <= toRow; ++cy) {
+            for (int cx = from; cx <= to; ++cx) {
+                int c = cy * side + cx;
+                for (int i = vertexOffset[c]; i < vertexOffset[c + 1]; ++i) {
+                    int v = vertexCells[i];
+                    int x = view.toScreenX(vx[v]);
+                    int y = view.toScreenY(vy[v]);
+                    if (mark(x, y, width, height)) {
+                        graphics.fillOval(x - radius, y - radius, 2 * radius, 2 * radius);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isOnScreen(TSViewport view, int width, int height) {
+        //whether the bounds of the figure reach the screen, the scale is always positive
+        return view.toScreenX(maxX) >= -SCREEN_MARGIN && view.toScreenX(minX) <= width + SCREEN_MARGIN
+                && view.toScreenY(maxY) >= -SCREEN_MARGIN && view.toScreenY(minY) <= height + SCREEN_MARGIN;
+    }
+
+    private void cover(int s, TSIntBuffer covered) {
+        //cells along the segment, column by column
+        double x0 = ax[s];
+        double y0 = ay[s];
+        double x1 = bx[s];
+        double y1 = by[s];
+        if (x0 > x1) {
+            double t = x0;
+            x0 = x1;
+            x1 = t;
+            t = y0;
+            y0 = y1;
+            y1 = t;
+        }
+        int from = column(x0);
+        int to = column(x1);
+        for (int cx = from; cx <= to; ++cx) {
+            double low = y0;
+            double high = y1;
+            if (x0 != x1) {
+                double left = Math.max(x0, minX + cx * cell);
+                double right = Math.min(x1, minX + (cx + 1) * cell);
+                low = y0 + (y1 - y0) * (left - x0) / (x1 - x0);
+                high = y0 + (y1 - y0) * (right - x0) / (x1 - x0);
+            }
+            int top = row(Math.min(low, high));
+            int bottom = row(Math.max(low, high));
+            for (int cy = top; cy <= bottom; ++cy) {
+                covered.add(cy * side + cx);
+                covered.add(s);
+            }
+        }
+    }
+
+    private void fill(TSIntBuffer covered, int[] offset, int[] items) {
+        for (int i = 0; i < covered.size(); i += 2) {
+            offset[covered.get(i) + 1]++;
+        }
+        for (int c = 0; c < side * side; ++c) {
+            offset[c + 1] += offset[c];
+        }
+        int[] next = Arrays.copyOf(offset, side * side);
+        for (int i = 0; i < covered.size(); i += 2) {
+            items[next[covered.get(i)]++] = covered.get(i + 1);
+        }
+    }
+
+    private int column(double x) {
+        //coordinates outside the figure fall into the border cells
+        return (int) Math.max(0, Math.min(side - 1, Math.floor((x - minX) / cell)));
+    }
+
+    private int row(double y) {
+        return (int) Math.max(0, Math.min(side - 1, Math.floor((y - minY) / cell)));
+    }
+
+    private void clearPixels(int width, int height) {
+        int words = (int) (((long) width * height + 63) / 64);
+        if (pixels.length < words) {
+            pixels = new long[words];
+        }
+        else {
+            Arrays.fill(pixels, 0, words, 0);
+        }
+    }
+
+    private boolean mark(int x, int y, int width, int height) {
+        //false if the pixel already got its dot, pixels off the screen are always drawn
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return true;
+        }
+        long pixel = (long) y * width + x;
+        long bit = 1L << (pixel & 63);
+        int word = (int) (pixel >>> 6);
+        if ((pixels[word] & bit) != 0) {
+            return false;
+        }
+        pixels[word] |= bit;
+        return true;
+    }
+}
@@ -0,0 +1,382 @@
+package trianglesolver.gui;
+
+import java.awt.BasicStroke;
+import static java.awt.BasicStroke.CAP_ROUND;
+import static java.awt.BasicStroke.JOIN_ROUND;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import static java.awt.image.BufferedImage.TYPE_BYTE_BINARY;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import trianglesolver.util.TSSegment;
+import trianglesolver.util.TSTriangle;
+import trianglesolver.util.TSVertex;
+
+class TSImageExporter {
+
+    enum Format {
+        IMAGES, //one PNG per triangle named by its index
+        ATLAS, //triangles.png with a tile per triangle, triangles.csv gives the tile and the vertices of every triangle
+        SVG //triangles.svg, the figure and a hidden polygon per triangle shown by its id, like triangles.svg#t12
+    }
+
+    private static final int BORDER = 4;
+    private static final Color BACKGROUND = Color.BLACK;
+    private static final Color SEGMENT = new Color(180, 180, 180);
+    private static final Color TRIANGLE = new Color(0, 162, 232, 180);
+
+    private final List<TSSegment> segments;
+    private final List<TSTriangle> triangles;
+    private final Path directory;
+    private final int left;
+    private final int top;
+    private final IndexColorModel colors; //bit 0 set on segments, bit 1 inside the triangle
+    private final BufferedImage background;
+    private final AtomicInteger saved = new AtomicInteger();
+    private volatile boolean cancelled = false;
+    private IOException failure = null;
+
+    TSImageExporter(List<TSVertex> vertices, List<TSSegment> segments, List<TSTriangle> triangles, Path directory) {
+        //the figure is drawn once, every image is a copy of it with one triangle over it
+        this.segments = new ArrayList<>(segments);
+        this.triangles = triangles;
+        this.directory = directory;
+        int l = Integer.MAX_VALUE;
+        int r = Integer.MIN_VALUE;
+        int t = Integer.MAX_VALUE;
+        int b = Integer.MIN_VALUE;
+        List<TSVertex> corners = new ArrayList<>(vertices);
+        for (TSSegment segment : segments) { //snapped segment ends aren't always in the vertices
+            corners.add(segment.getVertexA());
+            corners.add(segment.getVertexB());
+        }
+        for (TSVertex v : corners) {
+            int x = (int) v.getX();
+            int y = (int) v.getY();
+            t = Math.min(t, y);
+            b = Math.max(b, y);
+            l = Math.min(l, x);
+            r = Math.max(r, x);
+        }
+        left = l;
+        top = t;
+        byte[] red = new byte[4];
+        byte[] green = new byte[4];
+        byte[] blue = new byte[4];
+        Color[] under = {BACKGROUND, SEGMENT};
+        for (int i = 0; i < 2; ++i) {
+            red[i] = (byte) under[i].getRed();
+            green[i] = (byte) under[i].getGreen();
+            blue[i] = (byte) under[i].getBlue();
+            red[i + 2] = (byte) blend(TRIANGLE.getRed(), under[i].getRed());
+            green[i + 2] = (byte) blend(TRIANGLE.getGreen(), under[i].getGreen());
+            blue[i + 2] = (byte) blend(TRIANGLE.getBlue(), under[i].getBlue());
+        }
+        colors = new IndexColorModel(2, 4, red, green, blue);
+        background = new BufferedImage(Math.max(1, r - l + BORDER * 2), Math.max(1, b - t + BORDER * 2), TYPE_BYTE_BINARY, colors);
+        Graphics2D image = background.createGraphics();
+        image.setPaint(SEGMENT);
+        image.setStroke(new BasicStroke(5, CAP_ROUND, JOIN_ROUND));
+        for (TSSegment segment : segments) {
+            image.drawLine(x(segment.getVertexA()), y(segment.getVertexA()), x(segment.getVertexB()), y(segment.getVertexB()));
+        }
+        image.dispose();
+    }
+
+    int getTotal() {
+        return triangles.size();
+    }
+
+    int getSaved() {
+        return saved.get();
+    }
+
+    synchronized IOException getFailure() {
+        return failure;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    void start(final Format format, final ForkJoinPool pool, final StatusUpdater status) {
+        //runs on its own thread, the status gets the progress and finish() once everything stopped
+        Thread worker = new Thread() {
+            @Override
+            public void run() {
+                String target;
+                try {
+                    switch (format) {
+                        case ATLAS:
+                            target = atlas(status);
+                            break;
+                        case SVG:
+                            target = svg(status);
+                            break;
+                        default:
+                            target = images(pool, status);
+                    }
+                } catch (IOException ex) {
+                    target = null;
+                    fail(ex);
+                }
+                IOException ex = getFailure();
+                if (ex != null) {
+                    status.update("Saving failed after " + saved.get() + " triangles: " + ex.getMessage(), null);
+                }
+                else if (cancelled) {
+                    status.update("Saving cancelled after " + saved.get() + " triangles", null);
+                }
+                else {
+                    status.update("Saved " + saved.get() + " triangles to " + target, null);
+                }
+                status.finish();
+            }
+        };
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private String images(ForkJoinPool pool, final StatusUpdater status) {
+        //encoded on the pool in ranges
+        int chunks = Math.max(1, Math.min(triangles.size(), pool.getParallelism() * 4));
+        List<Future<Void>> parts = new ArrayList<>();
+        for (int c = 0; c < chunks; ++c) {
+            final int from = (int) ((long) triangles.size() * c / chunks);
+            final int to = (int) ((long) triangles.size() * (c + 1) / chunks);
+            parts.add(pool.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    images(from, to, status);
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> part : parts) {
+            try {
+                part.get();
+            } catch (InterruptedException ex) {
+                cancelled = true;
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                fail(new IOException(ex.getCause()));
+            }
+        }
+        return directory.toString();
+    }
+
+    private void images(int from, int to, StatusUpdater status) {
+        BufferedImage frame = new BufferedImage(background.getWidth(), background.getHeight(), TYPE_BYTE_BINARY, colors);
+        byte[] pixels = ((DataBufferByte) frame.getRaster().getDataBuffer()).getData();
+        byte[] figure = ((DataBufferByte) background.getRaster().getDataBuffer()).getData();
+        int stride = ((MultiPixelPackedSampleModel) frame.getSampleModel()).getScanlineStride();
+        Mask mask = new Mask();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        for (int i = from; i < to && !cancelled && getFailure() == null; ++i) {
+            System.arraycopy(figure, 0, pixels, 0, figure.length);
+            mask.cover(triangles.get(i), pixels, 0, stride);
+            try (ImageOutputStream out = new MemoryCacheImageOutputStream(Files.newOutputStream(directory.resolve(i + ".png")))) {
+                writer.setOutput(out);
+                writer.write(frame);
+            } catch (IOException ex) {
+                fail(ex);
+                break;
+            }
+            saved(status);
+        }
+        mask.dispose();
+        writer.dispose();
+    }
+
+    private String atlas(StatusUpdater status) throws IOException {
+        //rendered one row of tiles at a time, tiles start on a byte of the packed rows
+        int height = background.getHeight();
+        int tileBytes = ((MultiPixelPackedSampleModel) background.getSampleModel()).getScanlineStride();
+        int tileWidth = tileBytes * 4;
+        int n = triangles.size();
+        int columns = Math.max(1, Math.min(n, (int) Math.ceil(Math.sqrt((double) n * height / tileWidth)))); //about square
+        int rows = Math.max(1, (n + columns - 1) / columns);
+        int stride = columns * tileBytes;
+        byte[] figure = ((DataBufferByte) background.getRaster().getDataBuffer()).getData();
+        byte[] strip = new byte[stride * height];
+        byte[] red = new byte[4];
+        byte[] green = new byte[4];
+        byte[] blue = new byte[4];
+        colors.getReds(red);
+        colors.getGreens(green);
+        colors.getBlues(blue);
+        Path image = directory.resolve("triangles.png");
+        Path index = directory.resolve("triangles.csv");
+        Mask mask = new Mask();
+        try (TSPngWriter png = new TSPngWriter(image, columns * tileWidth, rows * height, 2, red, green, blue);
+                BufferedWriter csv = Files.newBufferedWriter(index, StandardCharsets.UTF_8)) {
+            csv.write("triangle,x,y,width,height,ax,ay,bx,by,cx,cy");
+            csv.newLine();
+            for (int row = 0; row < rows; ++row) {
+                if (cancelled) { //the image is incomplete, it is removed below
+                    throw new IOException("Cancelled");
+                }
+                for (int c = 0; c < columns; ++c) {
+                    int i = row * columns + c;
+                    for (int y = 0; y < height; ++y) { //tiles after the last triangle stay empty
+                        if (i < n) {
+                            System.arraycopy(figure, y * tileBytes, strip, y * stride + c * tileBytes, tileBytes);
+                        }
+                        else {
+                            Arrays.fill(strip, y * stride + c * tileBytes, y * stride + (c + 1) * tileBytes, (byte) 0);
+                        }
+                    }
+                    if (i < n) {
+                        TSTriangle tr = triangles.get(i);
+                        mask.cover(tr, strip, c * tileBytes, stride);
+                        csv.write(i + "," + c * tileWidth + "," + row * height + "," + background.getWidth() + "," + height
+                                + "," + point(tr.getVertexA()) + "," + point(tr.getVertexB()) + "," + point(tr.getVertexC()));
+                        csv.newLine();
+                        saved(status);
+                    }
+                }
+                png.writeRows(strip, 0, stride, height);
+            }
+        } catch (IOException ex) {
+            Files.deleteIfExists(image);
+            Files.deleteIfExists(index);
+            if (!cancelled) {
+                throw ex;
+            }
+        } finally {
+            mask.dispose();
+        }
+        return image.toString();
+    }
+
+    private String svg(StatusUpdater status) throws IOException {
+        //written as it goes, the coordinates are exact and moved like in the images
+        Path file = directory.resolve("triangles.svg");
+        int width = background.getWidth();
+        int height = background.getHeight();
+        try (BufferedWriter svg = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            svg.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            svg.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width + "\" height=\"" + height + "\" viewBox=\"0 0 " + width + " " + height + "\">\n");
+            svg.write("<style>.triangle{display:none}.triangle:target{display:inline}</style>\n");
+            svg.write("<rect id=\"background\" width=\"100%\" height=\"100%\" fill=\"" + hex(BACKGROUND) + "\"/>\n");
+            svg.write("<g id=\"figure\" stroke=\"" + hex(SEGMENT) + "\" stroke-width=\"5\" stroke-linecap=\"round\" stroke-linejoin=\"round\">\n");
+            for (TSSegment segment : segments) {
+                svg.write("<line x1=\"" + number(segment.getVertexA().getX() - left + BORDER) + "\" y1=\"" + number(segment.getVertexA().getY() - top + BORDER)
+                        + "\" x2=\"" + number(segment.getVertexB().getX() - left + BORDER) + "\" y2=\"" + number(segment.getVertexB().getY() - top + BORDER) + "\"/>\n");
+            }
+            svg.write("</g>\n");
+            svg.write("<g id=\"triangles\" fill=\"" + hex(TRIANGLE) + "\" fill-opacity=\"" + number(TRIANGLE.getAlpha() / 255.0) + "\">\n");
+            for (int i = 0; i < triangles.size(); ++i) {
+                if (cancelled) {
+                    break;
+                }
+                TSTriangle tr = triangles.get(i);
+                svg.write("<polygon id=\"t" + i + "\" class=\"triangle\" points=\"" + vertex(tr.getVertexA()) + " " + vertex(tr.getVertexB()) + " " + vertex(tr.getVertexC()) + "\"/>\n");
+                saved(status);
+            }
+            svg.write("</g>\n");
+            svg.write("</svg>\n");
+        }
+        if (cancelled) {
+            Files.deleteIfExists(file);
+        }
+        return file.toString();
+    }
+
+    private void saved(StatusUpdater status) {
+        int n = saved.incrementAndGet();
+        status.update("Saving triangles... (" + n + " of " + triangles.size() + ")", null);
+    }
+
+    private synchronized void fail(IOException ex) {
+        if (failure == null) { //the first error stops every range
+            failure = ex;
+        }
+    }
+
+    private class Mask {
+
+        //the triangles are filled like on the screen, where the edges only come out the same at their own position
+        private final int width = background.getWidth();
+        private final int height = background.getHeight();
+        private final BufferedImage mask = new BufferedImage(width, height, TYPE_INT_RGB);
+        private final int[] covered = ((DataBufferInt) mask.getRaster().getDataBuffer()).getData();
+        private final Graphics2D image = mask.createGraphics();
+
+        private Mask() {
+            image.setPaint(TRIANGLE);
+        }
+
+        private void cover(TSTriangle tr, byte[] pixels, int offset, int stride) {
+            //sets bit 1 of every pixel the triangle covers in packed rows starting at the offset, the mask is cleared for the next one
+            int[] X = new int[]{x(tr.getVertexA()), x(tr.getVertexB()), x(tr.getVertexC())};
+            int[] Y = new int[]{y(tr.getVertexA()), y(tr.getVertexB()), y(tr.getVertexC())};
+            int minX = Math.max(0, Math.min(X[0], Math.min(X[1], X[2])));
+            int minY = Math.max(0, Math.min(Y[0], Math.min(Y[1], Y[2])));
+            int maxX = Math.min(width - 1, Math.max(X[0], Math.max(X[1], X[2])));
+            int maxY = Math.min(height - 1, Math.max(Y[0], Math.max(Y[1], Y[2])));
+            image.fillPolygon(X, Y, 3);
+            for (int y = minY; y <= maxY; ++y) {
+                for (int x = minX; x <= maxX; ++x) {
+                    if (covered[y * width + x] != 0) {
+                        pixels[offset + y * stride + (x >> 2)] |= 2 << (6 - 2 * (x & 3));
+                        covered[y * width + x] = 0;
+                    }
+                }
+            }
+        }
+
+        private void dispose() {
+            image.dispose();
+        }
+    }
+
+    private String vertex(TSVertex v) {
+        return number(v.getX() - left + BORDER) + "," + number(v.getY() - top + BORDER);
+    }
+
+    private static String point(TSVertex v) {
+        return number(v.getX()) + "," + number(v.getY());
+    }
+
+    private static String number(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private static String hex(Color color) {
+        return String.format("#%06x", color.getRGB() & 0xFFFFFF);
+    }
+
+    private int x(TSVertex v) {
+        return (int) v.getX() - left + BORDER;
+    }
+
+    private int y(TSVertex v) {
+        return (int) v.getY() - top + BORDER;
+    }
+
+    private static int blend(int over, int under) {
+        return (over * TRIANGLE.getAlpha() + under * (255 - TRIANGLE.getAlpha()) + 127) / 255;
+    }
+}
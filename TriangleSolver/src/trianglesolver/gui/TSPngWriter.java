@@ -0,0 +1,119 @@
+package trianglesolver.gui;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+class TSPngWriter implements Closeable {
+
+    //palette PNG written row by row, only one compressed chunk is kept in memory
+    private static final byte[] SIGNATURE = {(byte) 137, 'P', 'N', 'G', '\r', '\n', 26, '\n'};
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private final byte[] filter = {0}; //every row is stored unfiltered, which suits a palette
+    private final int rowBytes;
+    private int rows;
+    private int used = 0;
+
+    TSPngWriter(Path file, int width, int height, int bits, byte[] red, byte[] green, byte[] blue) throws IOException {
+        rowBytes = (int) (((long) width * bits + 7) / 8);
+        rows = height;
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), CHUNK_SIZE));
+        try {
+            out.write(SIGNATURE);
+            byte[] header = new byte[13];
+            put(header, 0, width);
+            put(header, 4, height);
+            header[8] = (byte) bits;
+            header[9] = 3; //indexed colour, compression, filter and interlace methods stay 0
+            chunk("IHDR", header, header.length);
+            byte[] palette = new byte[red.length * 3];
+            for (int i = 0; i < red.length; ++i) {
+                palette[3 * i] = red[i];
+                palette[3 * i + 1] = green[i];
+                palette[3 * i + 2] = blue[i];
+            }
+            chunk("PLTE", palette, palette.length);
+        } catch (IOException ex) {
+            out.close();
+            throw ex;
+        }
+    }
+
+    void writeRows(byte[] pixels, int offset, int stride, int count) throws IOException {
+        //packed rows like in a MultiPixelPackedSampleModel raster
+        if (count > rows) {
+            throw new IllegalStateException("More rows than the image has");
+        }
+        rows -= count;
+        for (int r = 0; r < count; ++r) {
+            deflate(filter, 0, 1);
+            deflate(pixels, offset + r * stride, rowBytes);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rows != 0) {
+                throw new IOException("Image closed " + rows + " rows before its end");
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                drain();
+            }
+            flush();
+            chunk("IEND", chunk, 0);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void deflate(byte[] data, int offset, int length) throws IOException {
+        deflater.setInput(data, offset, length);
+        while (!deflater.needsInput()) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        used += deflater.deflate(chunk, used, CHUNK_SIZE - used);
+        if (used == CHUNK_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        if (used > 0) {
+            chunk("IDAT", chunk, used);
+            used = 0;
+        }
+    }
+
+    private void chunk(String type, byte[] data, int length) throws IOException {
+        byte[] name = type.getBytes("US-ASCII");
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(name);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void put(byte[] data, int offset, int value) {
+        data[offset] = (byte) (value >>> 24);
+        data[offset + 1] = (byte) (value >>> 16);
+        data[offset + 2] = (byte) (value >>> 8);
+        data[offset + 3] = (byte) value;
+    }
+}
@@ -6,24 +6,36 @@ import static java.awt.BasicStroke.JOIN_ROUND;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.util.List;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
 import javax.swing.JComponent;
 import trianglesolver.util.TSFigure;
-import trianglesolver.util.TSSegment;
 import trianglesolver.util.TSTriangle;
+import trianglesolver.util.TSTriangleStore;
 
 public class TSSolverBoard extends JComponent {
 
+    private static final Color SEGMENT = new Color(40, 40, 40, 40);
+    private static final Color TRIANGLE = new Color(181, 230, 29);
+    private static final BasicStroke SEGMENT_STROKE = new BasicStroke(5, CAP_ROUND, JOIN_ROUND);
+    private static final BasicStroke TRIANGLE_STROKE = new BasicStroke(2, CAP_ROUND, JOIN_ROUND);
+
     private Graphics2D graphics2D;
+    private final TSViewport view = new TSViewport();
+    private TSFigureGrid grid;
+    private long gridModifications;
     private boolean showSolved;
+    private boolean showDensity;
+    private final TSDensityMap density = new TSDensityMap(ForkJoinPool.commonPool());
     private int n;
     private final TSFigure figure;
-    private final List<TSTriangle> list;
+    private final TSTriangleStore list;
 
-    public TSSolverBoard(TSFigure f, List<TSTriangle> l) {
+    public TSSolverBoard(TSFigure f, TSTriangleStore l) {
         figure = f;
         list = l;
         n = -1;
+        view.attach(this);
     }
 
     private TSSolverBoard() {
@@ -39,6 +51,18 @@ public class TSSolverBoard extends JComponent {
         repaint();
     }
 
+    public void setDensityVisibility(boolean b) {
+        showDensity = b;
+        repaint();
+    }
+
+    public void solutionsAdded() {
+        //the density map takes in the new triangles on the next paint
+        if (showDensity) {
+            repaint();
+        }
+    }
+
     public void prevSolution() {
         if (showSolved) {
             n--;
@@ -49,6 +73,17 @@ public class TSSolverBoard extends JComponent {
         }
     }
 
+    public void fitToFigure() {
+        updateGrid();
+        view.fit(grid, getWidth(), getHeight());
+        repaint();
+    }
+
+    public void resetView() {
+        view.reset();
+        repaint();
+    }
+
     public void nextSolution() {
         if (showSolved) {
             n++;
@@ -65,41 +100,60 @@ public class TSSolverBoard extends JComponent {
         graphics2D = (Graphics2D) graphics;
         clear();
         drawFigure();
+        if (showDensity) {
+            drawDensity();
+        }
         if (showSolved) {
             drawSolution();
         }
     }
 
+    private void updateGrid() {
+        if (figure != null && (grid == null || gridModifications != figure.getModifications())) {
+            gridModifications = figure.getModifications();
+            grid = new TSFigureGrid(figure.getBasicSegments(), figure.getVertices());
+        }
+    }
+
     private void clear() {
         graphics2D.setPaint(Color.WHITE);
         graphics2D.fillRect(0, 0, getWidth(), getHeight());
     }
 
     private void drawFigure() {
-        if (figure != null) {
-            graphics2D.setPaint(new Color(40, 40, 40, 40));
-            graphics2D.setStroke(new BasicStroke(5, CAP_ROUND, JOIN_ROUND));
-            for (TSSegment s : figure.getBasicSegments()) {
-                int Ax = (int) (s.getVertexA().getX() + 0.5);
-                int Ay = (int) (s.getVertexA().getY() + 0.5);
-                int Bx = (int) (s.getVertexB().getX() + 0.5);
-                int By = (int) (s.getVertexB().getY() + 0.5);
-                graphics2D.drawLine(Ax, Ay, Bx, By);
-            }
+        if (figure != null) { //only the segments on screen
+            updateGrid();
+            graphics2D.setPaint(SEGMENT);
+            graphics2D.setStroke(SEGMENT_STROKE);
+            grid.drawSegments(graphics2D, view, getWidth(), getHeight());
+        }
+    }
+
+    private void drawDensity() {
+        if (list != null && !list.isEmpty()) {
+            BufferedImage map = density.update(list, view, getWidth(), getHeight());
+            graphics2D.drawImage(map, 0, 0, null);
         }
     }
 
     private void drawSolution() {
         if (list != null && n >= 0 && n < list.size()) {
-            graphics2D.setPaint(new Color(181, 230, 29));
-            graphics2D.setStroke(new BasicStroke(2, CAP_ROUND, JOIN_ROUND));
             TSTriangle t = list.get(n);
-            int Ax = (int) (t.getVertexA().getX() + 0.5);
-            int Ay = (int) (t.getVertexA().getY() + 0.5);
-            int Bx = (int) (t.getVertexB().getX() + 0.5);
-            int By = (int) (t.getVertexB().getY() + 0.5);
-            int Cx = (int) (t.getVertexC().getX() + 0.5);
-            int Cy = (int) (t.getVertexC().getY() + 0.5);
+            int Ax = view.toScreenX(t.getVertexA().getX());
+            int Ay = view.toScreenY(t.getVertexA().getY());
+            int Bx = view.toScreenX(t.getVertexB().getX());
+            int By = view.toScreenY(t.getVertexB().getY());
+            int Cx = view.toScreenX(t.getVertexC().getX());
+            int Cy = view.toScreenY(t.getVertexC().getY());
+            int left = Math.min(Ax, Math.min(Bx, Cx));
+            int top = Math.min(Ay, Math.min(By, Cy));
+            int right = Math.max(Ax, Math.max(Bx, Cx));
+            int bottom = Math.max(Ay, Math.max(By, Cy));
+            if (right < -2 || bottom < -2 || left > getWidth() + 2 || top > getHeight() + 2) { //off the screen
+                return;
+            }
+            graphics2D.setPaint(TRIANGLE);
+            graphics2D.setStroke(TRIANGLE_STROKE);
             graphics2D.drawLine(Ax, Ay, Bx, By);
             graphics2D.drawLine(Bx, By, Cx, Cy);
             graphics2D.drawLine(Cx, Cy, Ax, Ay);
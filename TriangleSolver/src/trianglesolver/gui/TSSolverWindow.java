@@ -1,45 +1,56 @@
 package trianglesolver.gui;
 
-import java.awt.BasicStroke;
-import static java.awt.BasicStroke.CAP_ROUND;
-import static java.awt.BasicStroke.JOIN_ROUND;
-import java.awt.Color;
 import java.awt.Dimension;
-import java.awt.Graphics2D;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.image.BufferedImage;
-import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import javax.imageio.ImageIO;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.swing.GroupLayout;
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JProgressBar;
 import javax.swing.LayoutStyle;
+import javax.swing.Timer;
 import trianglesolver.util.TSFigure;
-import trianglesolver.util.TSSegment;
+import trianglesolver.util.TSSolveCache;
+import trianglesolver.util.TSSolveHandle;
+import trianglesolver.util.TSSolveMetrics;
 import trianglesolver.util.TSTriangle;
-import trianglesolver.util.TSVertex;
+import trianglesolver.util.TSTriangleStore;
 
-public class TSSolverWindow extends JFrame implements StatusUpdater {
+public class TSSolverWindow extends JFrame implements BatchStatusUpdater {
+
+    private static final TSSolveCache CACHE = new TSSolveCache(256L << 20); //shared by every window, reopening a figure doesn't solve it again
+    private static final int PROGRESS_STEPS = 1000;
+    private static final int PROGRESS_DELAY = 200; //ms between looks at the work done, triangles may not come for a while
 
     private final JButton next = new JButton("Next >");
     private final JButton prev = new JButton("< Prev");
     private final JButton save = new JButton("Save results");
+    private final JButton fit = new JButton("Fit");
     private final TSSolverBoard board;
     private final JProgressBar progressBar = new JProgressBar();
     private final JCheckBox showSolved = new JCheckBox("Show results");
+    private final JCheckBox showDensity = new JCheckBox("Show density");
     private final JLabel label = new JLabel();
+    private final Timer progress;
 
     private final TSFigure figure;
-    private final List<TSTriangle> result = new LinkedList<>();
+    private final TSTriangleStore result = new TSTriangleStore();
+    private TSSolveHandle solve;
+    private TSImageExporter exporter = null;
 
     public TSSolverWindow(TSFigure f) {
         super("TraingleSolver - solver");
@@ -51,18 +62,29 @@ public class TSSolverWindow extends JFrame implements StatusUpdater {
 
         figure = f;
         board = new TSSolverBoard(figure, result);
-        figure.setUpdater(this);
+        progress = new Timer(PROGRESS_DELAY, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent action) {
+                showProgress();
+            }
+        });
+        figure.setUpdater(new SwingStatusUpdater(this));
+        figure.setPool(ForkJoinPool.commonPool());
+        figure.setIncremental(true);
+        figure.setCache(CACHE);
 
         initComponents();
         initLayout();
         initListeners();
 
-        figure.lock();
+        solve = figure.lock();
+        progress.start();
     }
 
     private TSSolverWindow() {
         figure = null;
         board = new TSSolverBoard(null, null);
+        progress = null;
     }
 
     private void initComponents() {
@@ -72,9 +94,11 @@ public class TSSolverWindow extends JFrame implements StatusUpdater {
         next.setEnabled(false);
         add(save);
         save.setEnabled(false);
+        add(fit);
         add(board);
         add(progressBar);
         add(showSolved);
+        add(showDensity);
         add(label);
     }
 
@@ -90,12 +114,15 @@ public class TSSolverWindow extends JFrame implements StatusUpdater {
                                         .addComponent(prev)
                                         .addGap(8)
                                         .addComponent(next)
+                                        .addGap(8)
+                                        .addComponent(fit)
                                         .addPreferredGap(LayoutStyle.ComponentPlacement.RELATED, 0, Short.MAX_VALUE)
                                         .addComponent(save))
                                 .addComponent(progressBar, GroupLayout.DEFAULT_SIZE, GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                                 .addGroup(layout.createSequentialGroup()
                                         .addGroup(layout.createParallelGroup(GroupLayout.Alignment.LEADING)
                                                 .addComponent(showSolved)
+                                                .addComponent(showDensity)
                                                 .addComponent(label))))
                         .addContainerGap())
         );
@@ -105,6 +132,7 @@ public class TSSolverWindow extends JFrame implements StatusUpdater {
                         .addGroup(layout.createParallelGroup(GroupLayout.Alignment.BASELINE)
                                 .addComponent(prev)
                                 .addComponent(next)
+                                .addComponent(fit)
                                 .addComponent(save))
                         .addPreferredGap(LayoutStyle.ComponentPlacement.RELATED)
                         .addComponent(board, GroupLayout.DEFAULT_SIZE, GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
@@ -113,12 +141,27 @@ public class TSSolverWindow extends JFrame implements StatusUpdater {
                         .addPreferredGap(LayoutStyle.ComponentPlacement.RELATED)
                         .addComponent(showSolved)
                         .addPreferredGap(LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(showDensity)
+                        .addPreferredGap(LayoutStyle.ComponentPlacement.RELATED)
                         .addComponent(label)
                         .addContainerGap())
         );
     }
 
     private void initListeners() {
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent event) {
+                progress.stop();
+                solve.cancel();
+                if (exporter != null) {
+                    exporter.cancel();
+                }
+                if (figure.getSolveHandle() == solve) { //a newer solver window owns the lock otherwise
+                    figure.unlock();
+                }
+            }
+        });
         prev.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent action) {
@@ -131,6 +174,12 @@ public class TSSolverWindow extends JFrame implements StatusUpdater {
                 board.nextSolution();
             }
         });
+        fit.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent action) {
+                board.fitToFigure();
+            }
+        });
         save.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent action) {
@@ -138,55 +187,21 @@ public class TSSolverWindow extends JFrame implements StatusUpdater {
                 save.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
                 if (save.showSaveDialog(getRootPane()) == JFileChooser.APPROVE_OPTION) {
                     File export = save.getSelectedFile();
-                    if (export.exists()) {
-                        int left = Integer.MAX_VALUE;
-                        int right = Integer.MIN_VALUE;
-                        int top = Integer.MAX_VALUE;
-                        int bottom = Integer.MIN_VALUE;
-                        for (TSVertex v : figure.getVertices()) {
-                            int x = (int) v.getX();
-                            int y = (int) v.getY();
-                            top = Math.min(top, y);
-                            bottom = Math.max(bottom, y);
-                            left = Math.min(left, x);
-                            right = Math.max(right, x);
-                        }
-                        int BORDER = 4;
-
-                        int iter = 0;
-                        for (TSTriangle tr : result) {
-                            BufferedImage bi = new BufferedImage(right - left + BORDER * 2, bottom - top + BORDER * 2, TYPE_INT_RGB);
-                            Graphics2D image = bi.createGraphics();
-                            image.setPaint(new Color(180, 180, 180));
-                            image.setStroke(new BasicStroke(5, CAP_ROUND, JOIN_ROUND));
-                            for (TSSegment segment : figure.getBasicSegments()) {
-                                int Ax = (int) segment.getVertexA().getX() - left + BORDER;
-                                int Ay = (int) segment.getVertexA().getY() - top + BORDER;
-                                int Bx = (int) segment.getVertexB().getX() - left + BORDER;
-                                int By = (int) segment.getVertexB().getY() - top + BORDER;
-                                image.drawLine(Ax, Ay, Bx, By);
-                            }
-                            image.setPaint(new Color(0, 162, 232, 180));
-                            int trAx = (int) tr.getVertexA().getX() - left + BORDER;
-                            int trAy = (int) tr.getVertexA().getY() - top + BORDER;
-                            int trBx = (int) tr.getVertexB().getX() - left + BORDER;
-                            int trBy = (int) tr.getVertexB().getY() - top + BORDER;
-                            int trCx = (int) tr.getVertexC().getX() - left + BORDER;
-                            int trCy = (int) tr.getVertexC().getY() - top + BORDER;
-
-                            int[] X = new int[]{trAx, trBx, trCx};
-                            int[] Y = new int[]{trAy, trBy, trCy};
-                            image.fillPolygon(X, Y, 3);
-
-                            try {
-                                ImageIO.write(bi, "png", new File(export.getPath() + "\\" + iter++ + ".png"));
-                            } catch (IOException ex) {
-                            }
-                        }
+                    String[] formats = {"Image per triangle", "Sprite sheet", "SVG"};
+                    int format = JOptionPane.showOptionDialog(getRootPane(), "Save the triangles as", "Save results",
+                            JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, formats, formats[0]);
+                    if (export.isDirectory() && format >= 0) {
+                        export(export, TSImageExporter.Format.values()[format]);
                     }
                 }
             }
         });
+        showDensity.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent action) {
+                board.setDensityVisibility(showDensity.isSelected());
+            }
+        });
         showSolved.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent action) {
@@ -204,31 +219,89 @@ public class TSSolverWindow extends JFrame implements StatusUpdater {
         });
     }
 
-    @Override
-    public void update(String msg, TSTriangle triangle) {
-        progressBar.setIndeterminate(true);
-        label.setText(msg);
-        if (triangle != null) {
-            boolean duplicate = false;
-            for (TSTriangle tr : result) {
-                if (tr != triangle) {
-                    boolean haveA = tr.contains(triangle.getVertexA());
-                    boolean haveB = tr.contains(triangle.getVertexB());
-                    boolean haveC = tr.contains(triangle.getVertexC());
-                    if (haveA && haveB && haveC) {
-                        duplicate = true;
-                    }
+    private void export(File directory, TSImageExporter.Format format) {
+        //runs in the background, the window only shows the progress
+        final TSImageExporter images = new TSImageExporter(figure.getVertices(), figure.getBasicSegments(), new ArrayList<>(result.asList()), directory.toPath());
+        exporter = images;
+        save.setEnabled(false);
+        progressBar.setIndeterminate(false);
+        progressBar.setStringPainted(false);
+        progressBar.setMaximum(Math.max(1, images.getTotal()));
+        progressBar.setValue(0);
+        images.start(format, ForkJoinPool.commonPool(), new SwingStatusUpdater(new BatchStatusUpdater() {
+            @Override
+            public void update(String msg, TSTriangle triangle) {
+                updateBatch(msg, null);
+            }
+
+            @Override
+            public void updateBatch(String msg, List<TSTriangle> triangles) {
+                if (msg != null) {
+                    label.setText(msg);
                 }
+                progressBar.setValue(images.getSaved());
             }
-            if (!duplicate) {
-                result.add(triangle);
+
+            @Override
+            public void finish() {
+                progressBar.setValue(images.getSaved());
+                save.setEnabled(true);
+                IOException ex = images.getFailure();
+                if (ex != null) {
+                    Logger.getLogger(TSSolverWindow.class.getName()).log(Level.SEVERE, null, ex);
+                    JOptionPane.showMessageDialog(getRootPane(), "Saving results failed: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
             }
+        }));
+    }
+
+    private void showProgress() {
+        //a real percentage and the time left when the phase knows how much work it has, indeterminate otherwise
+        TSSolveMetrics metrics = solve == null ? null : solve.getMetrics();
+        if (metrics != null && metrics.getStatus() != TSSolveHandle.Status.RUNNING) {
+            return; //finish() shows the end, a tick may still come after it
+        }
+        if (metrics == null || !metrics.isDeterminate()) {
+            progressBar.setIndeterminate(true);
+            progressBar.setStringPainted(false);
+            return;
+        }
+        double done = metrics.getProgress();
+        long left = metrics.getRemaining(TimeUnit.SECONDS);
+        progressBar.setIndeterminate(false);
+        progressBar.setMaximum(PROGRESS_STEPS);
+        progressBar.setValue((int) Math.round(done * PROGRESS_STEPS));
+        progressBar.setString(metrics.getPhase() + " " + (int) (done * 100) + "%" + (left < 0 ? "" : ", about " + left + " s left"));
+        progressBar.setStringPainted(true);
+    }
+
+    @Override
+    public void update(String msg, TSTriangle triangle) {
+        List<TSTriangle> triangles = new ArrayList<>();
+        if (triangle != null) {
+            triangles.add(triangle);
+        }
+        updateBatch(msg, triangles);
+    }
+
+    @Override
+    public void updateBatch(String msg, List<TSTriangle> triangles) {
+        if (msg != null) {
+            label.setText(msg);
+        }
+        for (TSTriangle triangle : triangles) {
+            result.add(triangle); //duplicates are rejected by the store
         }
+        board.solutionsAdded();
     }
 
     @Override
     public void finish() {
+        progress.stop();
         progressBar.setIndeterminate(false);
+        progressBar.setStringPainted(false);
+        progressBar.setMaximum(PROGRESS_STEPS);
+        progressBar.setValue(solve.getStatus() == TSSolveHandle.Status.COMPLETED ? PROGRESS_STEPS : progressBar.getValue());
         save.setEnabled(true);
     }
 }
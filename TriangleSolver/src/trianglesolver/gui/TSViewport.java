@@ -0,0 +1,122 @@
+package trianglesolver.gui;
+
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import javax.swing.JComponent;
+
+class TSViewport {
+
+    //screen = figure * scale + offset, the identity keeps the raw pixel coordinates of the figure
+    private static final double MIN_SCALE = 1e-4;
+    private static final double MAX_SCALE = 1e4;
+    private static final double WHEEL_STEP = 1.1;
+    private static final int FIT_MARGIN = 10;
+
+    private double scale = 1;
+    private double offsetX = 0;
+    private double offsetY = 0;
+    private long changes = 0;
+
+    void attach(final JComponent board) {
+        //the wheel zooms around the cursor, dragging pans
+        MouseAdapter adapter = new MouseAdapter() {
+            private int lastX;
+            private int lastY;
+
+            @Override
+            public void mousePressed(MouseEvent event) {
+                lastX = event.getX();
+                lastY = event.getY();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent event) {
+                pan(event.getX() - lastX, event.getY() - lastY);
+                lastX = event.getX();
+                lastY = event.getY();
+                board.repaint();
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent event) {
+                zoom(Math.pow(WHEEL_STEP, -event.getPreciseWheelRotation()), event.getX(), event.getY());
+                board.repaint();
+            }
+        };
+        board.addMouseListener(adapter);
+        board.addMouseMotionListener(adapter);
+        board.addMouseWheelListener(adapter);
+    }
+
+    double getScale() {
+        return scale;
+    }
+
+    long getChanges() {
+        //moves with every zoom or pan, for boards caching what they drew
+        return changes;
+    }
+
+    int toScreenX(double x) {
+        return (int) (x * scale + offsetX + 0.5);
+    }
+
+    int toScreenY(double y) {
+        return (int) (y * scale + offsetY + 0.5);
+    }
+
+    double screenX(double x) {
+        //not rounded to a pixel
+        return x * scale + offsetX;
+    }
+
+    double screenY(double y) {
+        return y * scale + offsetY;
+    }
+
+    double toFigureX(int x) {
+        return (x - offsetX) / scale;
+    }
+
+    double toFigureY(int y) {
+        return (y - offsetY) / scale;
+    }
+
+    void pan(double dx, double dy) {
+        offsetX += dx;
+        offsetY += dy;
+        changes++;
+    }
+
+    void zoom(double factor, int x, int y) {
+        //the figure point under (x, y) stays there
+        double zoomed = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+        offsetX = x - (x - offsetX) * zoomed / scale;
+        offsetY = y - (y - offsetY) * zoomed / scale;
+        scale = zoomed;
+        changes++;
+    }
+
+    void fit(TSFigureGrid grid, int width, int height) {
+        //the whole figure centered, an empty figure is shown at its own size
+        if (grid == null || grid.isEmpty()) {
+            reset();
+            return;
+        }
+        double figureWidth = Math.max(grid.getMaxX() - grid.getMinX(), 1e-9);
+        double figureHeight = Math.max(grid.getMaxY() - grid.getMinY(), 1e-9);
+        double fitted = Math.min((width - 2 * FIT_MARGIN) / figureWidth, (height - 2 * FIT_MARGIN) / figureHeight);
+        scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, fitted));
+        offsetX = width / 2.0 - (grid.getMinX() + grid.getMaxX()) / 2 * scale;
+        offsetY = height / 2.0 - (grid.getMinY() + grid.getMaxY()) / 2 * scale;
+        changes++;
+    }
+
+    void reset() {
+        scale = 1;
+        offsetX = 0;
+        offsetY = 0;
+        changes++;
+    }
+}
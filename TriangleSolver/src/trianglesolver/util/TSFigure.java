@@ -1,27 +1,52 @@
 package trianglesolver.util;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import trianglesolver.gui.BatchStatusUpdater;
+import trianglesolver.gui.IndexedStatusUpdater;
 import trianglesolver.gui.StatusUpdater;
 
 public class TSFigure {
 
+    private static final int BATCH_SIZE = 4096;
+
     private final List<TSVertex> vertices;
     private final List<TSSegment> basicSegments;
-    private final List<TSSegment> extendedSegments;
+    private List<TSSegment> extendedSegments;
+    private TSFigureStore store = null;
+    private TSIntBuffer extended = null;
     private boolean locked;
     private final double tolerance;
     private Thread worker = null;
+    private TSSolveHandle handle = null;
     private StatusUpdater updater;
+    private ForkJoinPool pool = null;
+    private TSSolveCache cache = null;
+    private boolean incremental = false;
+    private boolean retaining = true;
+    private TSSolution solution = null; //last completed solve, the base of an incremental one
+    private boolean preloaded = false; //solution was read with the figure, used by the next solve even when not incremental
+    private long solves = 0;
+    private long solved = 0;
+    private final double cell; //side of the grid cells used to snap vertices
+    private final Map<Long, TSIntBuffer> grid = new HashMap<>(); //indices into vertices by cell
+    private final Map<TSVertex, Integer> ids = new IdentityHashMap<>(); //every vertex used by a basic segment
+    private final Map<Long, Integer> pairs = new HashMap<>(); //count of basic segments by pair of vertex ids
+    private final Map<TSSegment, Integer> positions = new IdentityHashMap<>(); //index of every basic segment
+    private final TSSegmentIndex index = new TSSegmentIndex();
+    private boolean indexed = true; //false until the indices of an imported figure are built
+    private long modifications = 0; //counts changes of the vertices and basic segments
 
     public TSFigure() {
         this(0.005, null);
@@ -30,10 +55,11 @@ public class TSFigure {
     public TSFigure(double tolerance, StatusUpdater updater) {
         vertices = new ArrayList<>();
         basicSegments = new ArrayList<>();
-        extendedSegments = new ArrayList<>();
+        extendedSegments = null;
         locked = false;
         this.tolerance = tolerance;
         this.updater = updater;
+        cell = tolerance > 0 ? 2 * tolerance : 1;
     }
 
     synchronized public void addSegment(TSSegment segment) {
@@ -41,46 +67,64 @@ public class TSFigure {
             throw new IllegalStateException("Figure is locked");
         }
         else {
+            index();
             TSVertex A = segment.getVertexA();
             TSVertex B = segment.getVertexB();
-            boolean addA = true;
-            boolean addB = true;
-            for (TSVertex v : vertices) {
-                if (v == A || v.isCloseEnough(A, tolerance)) {
-                    addA = false;
-                }
-                if (v == B || v.isCloseEnough(B, tolerance)) {
-                    addB = false;
-                }
-            }
+            boolean addA = !isSnapped(A);
+            boolean addB = !isSnapped(B);
             if (addA) {
-                vertices.add(A);
+                addVertex(A);
             }
             if (addB) {
-                vertices.add(B);
+                addVertex(B);
             }
-            for (TSSegment s : basicSegments) {
-                if ((s.getVertexA() == A || s.getVertexA() == B) && (s.getVertexB() == A || s.getVertexB() == B)) {
-                    return; //can't add second segment for the same pair of vertices.
-                }
+            if (addA || addB) {
+                modifications++;
+            }
+            if (pairs.containsKey(pair(A, B))) {
+                return; //can't add second segment for the same pair of vertices.
             }
-            basicSegments.add(segment);
+            addBasicSegment(segment);
+            modifications++;
         }
     }
 
+    synchronized public long getModifications() {
+        //changes with every edit, a view can keep its drawing of the figure while it stays the same
+        return modifications;
+    }
+
     synchronized public boolean isLocked() {
         return locked;
     }
 
-    synchronized public void lock() {
+    synchronized public TSSolveHandle lock() {
+        return lock(0, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized public TSSolveHandle lock(long budget, TimeUnit unit) {
+        if (handle != null) {
+            handle.cancel();
+        }
         locked = true;
-        extendedSegments.clear();
+        extendedSegments = null;
+        extended = null;
+        store = new TSFigureStore(vertices, basicSegments);
+        handle = new TSSolveHandle(store, budget, unit, retaining);
+        TSSolverMonitor.watch(handle);
         fillExtendedSegments();
+        return handle;
     }
 
     synchronized public void unlock() {
+        if (handle != null) { //the worker keeps its own store, it only has to notice the cancellation
+            handle.cancel();
+            handle = null;
+        }
         locked = false;
-        extendedSegments.clear();
+        extendedSegments = null;
+        extended = null;
+        store = null;
     }
 
     synchronized public List<TSVertex> getVertices() {
@@ -92,188 +136,418 @@ public class TSFigure {
     }
 
     synchronized public List<TSSegment> getExtendedSegments() {
+        if (extendedSegments == null) { //built on demand, the solver only works with vertex indices
+            extendedSegments = new ArrayList<>();
+            if (extended != null) {
+                for (int i = 0; i < extended.size(); i += 2) {
+                    extendedSegments.add(new TSSegment(store.getVertex(extended.get(i)), store.getVertex(extended.get(i + 1))));
+                }
+            }
+        }
         return extendedSegments;
     }
 
+    synchronized public int[] findSegments(TSVertex a, TSVertex b) {
+        //indices into the basic segments of those which can touch the segment from a to b, in ascending order
+        index();
+        return index.find(a, b);
+    }
+
+    synchronized public TSFigureStore getStore() {
+        return store;
+    }
+
+    synchronized public TSSolveHandle getSolveHandle() {
+        return handle;
+    }
+
     synchronized public void setUpdater(StatusUpdater updater) {
         this.updater = updater;
     }
 
+    synchronized public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    synchronized public void setCache(TSSolveCache cache) {
+        //figures solved before, by this or another figure, are taken from the cache
+        this.cache = cache;
+    }
+
+    synchronized public TSSolveCache getCache() {
+        return cache;
+    }
+
+    synchronized public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    synchronized public boolean isIncremental() {
+        return incremental;
+    }
+
+    synchronized public void setRetainTriangles(boolean retaining) {
+        //without retaining, triangles only go to the updater and the memory of a solve doesn't grow with its result
+        this.retaining = retaining;
+    }
+
+    synchronized public boolean isRetainingTriangles() {
+        return retaining;
+    }
+
     synchronized public void exportToFile(String path) throws IOException {
         if (!path.endsWith(".ts")) {
             path += ".ts";
         }
-        File file = new File(path);
-        FileOutputStream out = new FileOutputStream(file);
-        byte n1[] = ByteBuffer.allocate(4).putInt(vertices.size()).array();
-        out.write(n1);
-        for (TSVertex v : vertices) {
-            byte s[] = ByteBuffer.allocate(16).putDouble(v.getX()).putDouble(v.getY()).array();
-            out.write(s);
-        }
-        byte n2[] = ByteBuffer.allocate(4).putInt(basicSegments.size()).array();
-        out.write(n2);
-        for (TSSegment s : basicSegments) {
-            int A = vertices.indexOf(s.getVertexA());
-            int B = vertices.indexOf(s.getVertexB());
-            byte i[] = ByteBuffer.allocate(8).putInt(A).putInt(B).array();
-            out.write(i);
-        }
+        //the result of the last solve is kept in the file when the figure hasn't changed since
+        TSFigureStore figure = new TSFigureStore(vertices, basicSegments);
+        TSSolution kept = solution != null && solution.matches(figure) ? solution : null;
+        TSFigureCodec.write(Paths.get(path), figure, kept, tolerance);
     }
 
     synchronized public void importFromfile(String path) throws FileNotFoundException, IOException {
+        TSFigureCodec.Contents contents;
+        try {
+            contents = TSFigureCodec.read(Paths.get(path)); //the figure stays as it was when the file is malformed
+        } catch (NoSuchFileException ex) {
+            throw new FileNotFoundException(path);
+        }
+        for (TSSegment s : basicSegments) {
+            s.setOwner(null);
+        }
         vertices.clear();
         basicSegments.clear();
-        extendedSegments.clear();
-
-        File file = new File(path);
-        FileInputStream in = new FileInputStream(file);
-        byte n1[] = new byte[4];
-        in.read(n1);
-        int size1 = ByteBuffer.wrap(n1).getInt();
-        for (int i = 0; i < size1; ++i) {
-            byte v1[] = new byte[8];
-            byte v2[] = new byte[8];
-            in.read(v1);
-            in.read(v2);
-            double X = ByteBuffer.wrap(v1).getDouble();
-            double Y = ByteBuffer.wrap(v2).getDouble();
-            vertices.add(new TSVertex(X, Y));
+        grid.clear();
+        ids.clear();
+        pairs.clear();
+        positions.clear();
+        index.clear();
+        extendedSegments = null;
+        extended = null;
+        solution = null;
+        preloaded = false;
+
+        vertices.addAll(contents.getVertices());
+        basicSegments.addAll(contents.getSegments());
+        for (TSSegment s : basicSegments) {
+            s.setOwner(this);
+        }
+        if (contents.isSolved() && contents.getTolerance() == tolerance) { //the next solve only checks it
+            solution = new TSSolution(new TSFigureStore(vertices, basicSegments), contents.getSolvedSegments(), contents.getTriangles());
+            preloaded = true;
+        }
+        indexed = false; //the indices are only needed for editing, they are built on the first change
+        modifications++;
+    }
+
+    synchronized void moved(TSSegment segment, TSVertex A, TSVertex B) {
+        modifications++;
+        if (!indexed) { //built from the current ends later
+            return;
+        }
+        release(pair(A, B));
+        register(segment);
+        index.add(positions.get(segment), segment);
+    }
+
+    private boolean isSnapped(TSVertex v) {
+        long cx = cell(v.getX());
+        long cy = cell(v.getY());
+        for (long i = cx - 1; i <= cx + 1; ++i) {
+            for (long j = cy - 1; j <= cy + 1; ++j) {
+                TSIntBuffer found = grid.get(key(i, j));
+                if (found == null) {
+                    continue;
+                }
+                for (int k = 0; k < found.size(); ++k) {
+                    TSVertex other = vertices.get(found.get(k));
+                    if (other == v || other.isCloseEnough(v, tolerance)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private void addVertex(TSVertex v) {
+        place(v, vertices.size());
+        vertices.add(v);
+    }
+
+    private void addBasicSegment(TSSegment segment) {
+        place(segment, basicSegments.size());
+        basicSegments.add(segment);
+        segment.setOwner(this);
+    }
+
+    private void index() {
+        if (indexed) {
+            return;
+        }
+        indexed = true;
+        for (int v = 0; v < vertices.size(); ++v) {
+            place(vertices.get(v), v);
         }
-        byte n2[] = new byte[4];
-        in.read(n2);
-        int size2 = ByteBuffer.wrap(n2).getInt();
-        for (int i = 0; i < size2; ++i) {
-            byte v1[] = new byte[4];
-            byte v2[] = new byte[4];
-            in.read(v1);
-            in.read(v2);
-            int vA = ByteBuffer.wrap(v1).getInt();
-            int vB = ByteBuffer.wrap(v2).getInt();
-            TSVertex A = vertices.get(vA);
-            TSVertex B = vertices.get(vB);
-            basicSegments.add(new TSSegment(A, B));
+        for (int s = 0; s < basicSegments.size(); ++s) {
+            place(basicSegments.get(s), s);
         }
     }
 
+    private void place(TSVertex v, int i) {
+        Long key = key(cell(v.getX()), cell(v.getY()));
+        TSIntBuffer found = grid.get(key);
+        if (found == null) {
+            found = new TSIntBuffer(4);
+            grid.put(key, found);
+        }
+        found.add(i);
+    }
+
+    private void place(TSSegment segment, int s) {
+        positions.put(segment, s);
+        index.add(s, segment);
+        register(segment);
+    }
+
+    private void register(TSSegment segment) {
+        Long key = pair(segment.getVertexA(), segment.getVertexB());
+        Integer count = pairs.get(key);
+        pairs.put(key, count == null ? 1 : count + 1);
+    }
+
+    private void release(Long key) {
+        Integer count = pairs.get(key);
+        if (count == null) {
+            return;
+        }
+        if (count == 1) {
+            pairs.remove(key);
+        }
+        else {
+            pairs.put(key, count - 1);
+        }
+    }
+
+    private Long pair(TSVertex A, TSVertex B) {
+        long a = id(A);
+        long b = id(B);
+        return a < b ? (a << 32) | b : (b << 32) | a;
+    }
+
+    private int id(TSVertex v) {
+        Integer id = ids.get(v);
+        if (id == null) {
+            id = ids.size();
+            ids.put(v, id);
+        }
+        return id;
+    }
+
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate / cell);
+    }
+
+    private static long key(long cx, long cy) {
+        return cx * 0x9E3779B97F4A7C15L + cy; //colliding cells only share a bucket
+    }
+
     private void fillExtendedSegments() {
+        final TSFigureStore figure = store;
+        final TSSolveHandle solve = handle;
+        final TSSolution previous = preloaded || (incremental && retaining) ? solution : null;
+        preloaded = false;
+        final boolean retain = retaining;
+        final TSSolveCache cached = cache;
+        final ForkJoinPool executor = pool;
+        final long sequence = ++solves;
+        final StatusUpdater status = updater != null ? updater : new IndexedStatusUpdater() { //nobody listens, no triangle objects are built
+            @Override
+            public void updateIndices(String msg, TSFigureStore store, TSIntBuffer triangles) {
+            }
+
+            @Override
+            public void update(String msg, TSTriangle triangle) {
+            }
+
+            @Override
+            public void finish() {
+            }
+        };
         worker = new Thread() {
             @Override
             public void run() {
-                updater.update("Copying basic segments...", null);
-                extendedSegments.addAll(basicSegments);
-                Map<TSVertex, List<TSVertex>> pairs = new HashMap<>();
-                for (TSVertex v : vertices) {
-                    pairs.put(v, new LinkedList<>());
+                boolean stopped = false;
+                Throwable failure = null;
+                solve.start();
+                try {
+                    stopped = !solve(figure, previous, cached, retain, executor, sequence, solve, status);
+                } catch (RuntimeException ex) {
+                    failure = ex;
                 }
-                updater.update("Generating extended segments...", null);
-                boolean added;
-                do {
-                    added = false;
-                    List<TSSegment> buffer = new LinkedList<>();
-                    for (TSSegment sA : extendedSegments) {
-                        for (TSSegment sB : extendedSegments) {
-                            if (sA != sB) {
-                                synchronized (this) {
-                                    TSSegment segment = null;
-                                    TSVertex common = null;
-                                    if (sA.getVertexA() == sB.getVertexA()) { //common vertex A and A
-                                        segment = new TSSegment(sA.getVertexB(), sB.getVertexB());
-                                        common = sA.getVertexA();
-                                    }
-                                    else if (sA.getVertexA() == sB.getVertexB()) { //common vertex A and B
-                                        segment = new TSSegment(sA.getVertexB(), sB.getVertexA());
-                                        common = sA.getVertexA();
-                                    }
-                                    else if (sA.getVertexB() == sB.getVertexA()) { //common vertex B and A
-                                        segment = new TSSegment(sA.getVertexA(), sB.getVertexB());
-                                        common = sA.getVertexB();
-                                    }
-                                    else if (sA.getVertexB() == sB.getVertexB()) { //common vertex B and B
-                                        segment = new TSSegment(sA.getVertexA(), sB.getVertexA());
-                                        common = sA.getVertexB();
-                                    }
-                                    else {
-                                        continue;
-                                    }
-
-                                    TSVertex projection = segment.getVertexProjection(common);
-                                    if (projection.isCloseEnough(common, tolerance) && segment.contains(projection)) {
-                                        if (!pairs.get(segment.getVertexA()).contains(segment.getVertexB()) && !pairs.get(segment.getVertexB()).contains(segment.getVertexA())) {
-                                            buffer.add(segment);
-                                            pairs.get(segment.getVertexA()).add(segment.getVertexB());
-                                            pairs.get(segment.getVertexB()).add(segment.getVertexA());
-                                            added = true;
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    extendedSegments.addAll(buffer);
-                } while (added);
-                updater.update("Solving triangles...", null);
-                int n = 0;
-                for (TSSegment t1 : extendedSegments) {
-                    for (TSSegment t2 : extendedSegments) {
-                        if (t1 != t2) {
-                            TSVertex common = null;
-                            TSVertex missingA = null;
-                            TSVertex missingB = null;
-                            if (t1.getVertexA() == t2.getVertexA()) {
-                                common = t1.getVertexA();
-                                missingA = t1.getVertexB();
-                                missingB = t2.getVertexB();
-                            }
-                            else if (t1.getVertexA() == t2.getVertexB()) {
-                                common = t1.getVertexA();
-                                missingA = t1.getVertexB();
-                                missingB = t2.getVertexA();
-                            }
-                            else if (t1.getVertexB() == t2.getVertexA()) {
-                                common = t1.getVertexB();
-                                missingA = t1.getVertexA();
-                                missingB = t2.getVertexB();
-                            }
-                            else if (t1.getVertexB() == t2.getVertexB()) {
-                                common = t1.getVertexB();
-                                missingA = t1.getVertexA();
-                                missingB = t2.getVertexA();
-                            }
-                            else {
-                                continue;
-                            }
-                            if (common != null && missingA != null && missingB != null) {
-                                for (TSSegment t3 : extendedSegments) {
-                                    if ((t3.getVertexA() == missingA || t3.getVertexA() == missingB) && (t3.getVertexB() == missingA || t3.getVertexB() == missingB)) {
-                                        TSVertex projectionC = t3.getVertexProjection(common);
-                                        if (projectionC.isCloseEnough(common, tolerance) && t3.contains(projectionC)) {
-                                            continue;
-                                        }
-                                        TSVertex projectionA = t2.getVertexProjection(missingA);
-                                        if (projectionA.isCloseEnough(missingA, tolerance) && t2.contains(projectionA)) {
-                                            continue;
-                                        }
-                                        TSVertex projectionB = t1.getVertexProjection(missingB);
-                                        if (projectionB.isCloseEnough(missingB, tolerance) && t1.contains(projectionB)) {
-                                            continue;
-                                        }
-                                        n++;
-                                        double result = n;
-                                        result /= 6;
-                                        result += (1 / 6);
-                                        TSTriangle tr = new TSTriangle(common, missingA, missingB);
-                                        updater.update("Solving triangles... (found: " + (int) result + ")", tr);
-                                    }
-                                }
-                            }
-                        }
-                    }
+                solve.finish(stopped, failure);
+                TSSolverMonitor.finished(solve);
+                int n = solve.getTrianglesFound();
+                switch (solve.getStatus()) {
+                    case CANCELLED:
+                        status.update("Cancelled in " + solve.getPhase() + " - found: " + n, null);
+                        break;
+                    case EXPIRED:
+                        status.update("Time budget exceeded in " + solve.getPhase() + " - found: " + n, null);
+                        break;
+                    case FAILED:
+                        status.update("Failed in " + solve.getPhase() + ": " + failure, null);
+                        break;
+                    default:
+                        TSSolveDelta delta = solve.getDelta();
+                        status.update("Completed - total found: " + n + (delta == null ? ""
+                                : " (added: " + delta.getAdded().size() + ", removed: " + delta.getRemoved().size() + ")"), null);
+                        break;
                 }
-                updater.update("Completed - total found: " + n / 6 + ")", null);
-                updater.finish();
+                status.finish();
             }
         };
+        worker.setDaemon(true);
         worker.start();
     }
+
+    private boolean solve(TSFigureStore figure, TSSolution previous, TSSolveCache cache, boolean retain, ForkJoinPool pool, long sequence, TSSolveHandle solve, StatusUpdater status) {
+        String key = null;
+        if (cache != null) {
+            solve.setPhase("Looking up cached solution", 0);
+            status.update("Looking up cached solution...", null);
+            key = TSSolveCache.key(figure, tolerance);
+            TSSolution found = cache.get(key, figure);
+            if (found != null) {
+                publish(figure, found.segments);
+                solve.setPhase("Solving triangles", 0);
+                report(figure, found.triangles, 0, solve, status);
+                if (retain) {
+                    keep(found, sequence);
+                }
+                return true;
+            }
+        }
+        if (previous != null) {
+            solve.setPhase("Updating previous solution", 0);
+            status.update("Updating previous solution...", null);
+            TSSolution updated = previous.update(figure, tolerance, solve);
+            if (updated != null) {
+                publish(figure, updated.segments);
+                solve.setDelta(new TSSolveDelta(figure, updated.added, updated.removed));
+                solve.setPhase("Solving triangles", 0);
+                report(figure, updated.triangles, 0, solve, status);
+                if (retain) {
+                    keep(updated, sequence);
+                }
+                if (key != null) {
+                    cache.put(key, updated);
+                }
+                return true;
+            }
+        }
+        solve.setPhase("Copying basic segments", 0);
+        status.update("Copying basic segments...", null);
+        solve.addWorkTotal(figure.getSegmentCount());
+        TSIntBuffer segments = new TSIntBuffer(figure.getSegmentCount() * 2);
+        for (int s = 0; s < figure.getSegmentCount(); ++s) {
+            segments.add(figure.getSegmentA(s));
+            segments.add(figure.getSegmentB(s));
+        }
+        solve.addWorkDone(figure.getSegmentCount());
+        solve.setPhase("Generating extended segments", 0);
+        status.update("Generating extended segments...", null);
+        segments.addAll(new TSSegmentExtender(tolerance, pool, solve).extend(figure));
+        publish(figure, segments);
+        solve.setPhase("Solving triangles", 0);
+        status.update("Solving triangles...", null);
+        final TSTriangleEnumerator enumerator = new TSTriangleEnumerator(figure, segments, tolerance, solve);
+        final int[] bounds = enumerator.partition(TSParallel.chunks(pool, enumerator.getVertexCount()));
+        solve.addWorkTotal(enumerator.getWork());
+        List<Callable<TSIntBuffer>> solving = new ArrayList<>();
+        for (int c = 0; c + 1 < bounds.length; ++c) {
+            final int from = bounds[c];
+            final int to = bounds[c + 1];
+            solving.add(new Callable<TSIntBuffer>() {
+                @Override
+                public TSIntBuffer call() {
+                    TSIntBuffer found = new TSIntBuffer();
+                    found.add(enumerator.enumerate(from, to, found)); //last entry tells where the range stopped
+                    return found;
+                }
+            });
+        }
+        int n = 0;
+        TSIntBuffer triangles = new TSIntBuffer();
+        int window = TSParallel.window(pool); //ranges found but not reported yet wait in memory, only a few are solved ahead
+        List<Future<TSIntBuffer>> parts = new ArrayList<>(solving.size());
+        for (int c = 0; c < solving.size(); ++c) { //report ranges in order
+            while (parts.size() < solving.size() && parts.size() < c + window) {
+                parts.add(TSParallel.submit(pool, solving.get(parts.size()), solve));
+            }
+            TSIntBuffer found = TSParallel.get(parts.get(c));
+            int reached = found.removeLast();
+            parts.set(c, null); //reported ranges can go
+            n = report(figure, found, n, solve, status);
+            if (retain) {
+                triangles.addAll(found);
+            }
+            solve.setPhase("Solving triangles", (double) reached / Math.max(1, enumerator.getVertexCount()));
+            if (reached < bounds[c + 1]) { //stopped, everything reported so far is the exact prefix of a full solve
+                return false;
+            }
+        }
+        if (retain) {
+            TSSolution completed = new TSSolution(figure, segments, triangles);
+            keep(completed, sequence);
+            if (key != null) {
+                cache.put(key, completed);
+            }
+        }
+        return true;
+    }
+
+    private synchronized void publish(TSFigureStore figure, TSIntBuffer segments) {
+        if (store == figure) {
+            extended = segments;
+            extendedSegments = null;
+        }
+    }
+
+    private synchronized void keep(TSSolution completed, long sequence) {
+        if (sequence > solved) {
+            solution = completed;
+            solved = sequence;
+        }
+    }
+
+    private int report(TSFigureStore figure, TSIntBuffer found, int n, TSSolveHandle solve, StatusUpdater status) {
+        if (status instanceof IndexedStatusUpdater) { //no triangle objects at all
+            solve.addTriangles(found);
+            n += found.size() / 3;
+            ((IndexedStatusUpdater) status).updateIndices("Solving triangles... (found: " + n + ")", figure, found);
+            return n;
+        }
+        BatchStatusUpdater batched = status instanceof BatchStatusUpdater ? (BatchStatusUpdater) status : null;
+        List<TSTriangle> batch = new ArrayList<>();
+        for (int i = 0; i < found.size(); i += 3) {
+            n++;
+            solve.addTriangle(found.get(i), found.get(i + 1), found.get(i + 2));
+            TSTriangle tr = new TSTriangle(figure.getVertex(found.get(i)), figure.getVertex(found.get(i + 1)), figure.getVertex(found.get(i + 2)));
+            if (batched == null) {
+                status.update("Solving triangles... (found: " + n + ")", tr);
+            }
+            else {
+                batch.add(tr);
+                if (batch.size() == BATCH_SIZE) {
+                    batched.updateBatch("Solving triangles... (found: " + n + ")", batch);
+                    batch = new ArrayList<>();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            batched.updateBatch("Solving triangles... (found: " + n + ")", batch);
+        }
+        return n;
+    }
 }
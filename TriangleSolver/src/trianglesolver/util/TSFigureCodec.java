@@ -0,0 +1,342 @@
+package trianglesolver.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class TSFigureCodec {
+
+    //version 1, big endian: vertex count, x and y of every vertex, segment count, vertex indices of every segment
+    //version 2: magic, version, section count, then sections of tag, payload length, CRC32 of the payload and the payload
+    public static final int MAGIC = 0x54534632; //"TSF2", as a version 1 vertex count it would need a 22 GB file
+    public static final int VERSION = 2;
+    static final int GEOMETRY = 0x47454F4D; //"GEOM" version 1 body, always first
+    static final int SEGMENTS = 0x53454753; //"SEGS" tolerance, count and vertex pairs of every solved segment
+    static final int TRIANGLES = 0x54524953; //"TRIS" tolerance, count and vertex triples of every triangle
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int SECTION_HEADER = 16;
+
+    private TSFigureCodec() {
+        //only static helpers
+    }
+
+    public static class Contents {
+
+        private final int version;
+        private final List<TSVertex> vertices;
+        private final List<TSSegment> segments;
+        private double tolerance = Double.NaN;
+        private TSIntBuffer solved = null;
+        private TSIntBuffer triangles = null;
+
+        private Contents(int version, List<TSVertex> vertices, List<TSSegment> segments) {
+            this.version = version;
+            this.vertices = vertices;
+            this.segments = segments;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public List<TSVertex> getVertices() {
+            return vertices;
+        }
+
+        public List<TSSegment> getSegments() {
+            return segments;
+        }
+
+        public boolean isSolved() {
+            //the file keeps the result of a solve, its indices point into the vertices of the file
+            return solved != null && triangles != null;
+        }
+
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public TSIntBuffer getSolvedSegments() {
+            return solved;
+        }
+
+        public TSIntBuffer getTriangles() {
+            return triangles;
+        }
+    }
+
+    public static void write(Path file, List<TSVertex> vertices, List<TSSegment> segments) throws IOException {
+        write(file, new TSFigureStore(vertices, segments), null, 0);
+    }
+
+    static void write(Path file, TSFigureStore store, TSSolution solution, double tolerance) throws IOException {
+        //the vertices are written in the order of the store, segments can keep a vertex which was snapped to another one
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.need(12);
+            out.buffer.putInt(MAGIC).putInt(VERSION).putInt(solution == null ? 1 : 3);
+            out.begin(GEOMETRY);
+            int size = store.getVertexCount();
+            out.need(4);
+            out.buffer.putInt(size);
+            for (int v = 0; v < size; ++v) {
+                out.need(16);
+                out.buffer.putDouble(store.x[v]).putDouble(store.y[v]);
+            }
+            int count = store.getSegmentCount();
+            out.need(4);
+            out.buffer.putInt(count);
+            for (int s = 0; s < count; ++s) {
+                out.need(8);
+                out.buffer.putInt(store.segmentA[s]).putInt(store.segmentB[s]);
+            }
+            out.end();
+            if (solution != null) {
+                writeIndices(out, SEGMENTS, tolerance, solution.segments, 2);
+                writeIndices(out, TRIANGLES, tolerance, solution.triangles, 3);
+            }
+            out.drain();
+        }
+    }
+
+    public static Contents read(Path file) throws IOException {
+        //reads both versions, a malformed file throws before anything is returned
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Input in = new Input(channel);
+            in.need(4);
+            int first = in.buffer.getInt();
+            if (first != MAGIC) {
+                return readGeometry(in, first, 1);
+            }
+            in.need(8);
+            int version = in.buffer.getInt();
+            int sections = in.buffer.getInt();
+            if (version < 2 || version > VERSION) {
+                throw new IOException("Unsupported figure version " + version);
+            }
+            if (sections < 1) {
+                throw new IOException("Malformed figure, " + sections + " sections");
+            }
+            Contents contents = null;
+            double[] tolerance = new double[2];
+            for (int i = 0; i < sections; ++i) {
+                in.need(SECTION_HEADER);
+                int tag = in.buffer.getInt();
+                long length = in.buffer.getLong();
+                int crc = in.buffer.getInt();
+                long end = in.offset() + length;
+                if (length < 0 || end > in.size) {
+                    throw new IOException("Malformed figure, section " + i + " doesn't fit the file");
+                }
+                if (i == 0 && tag != GEOMETRY) {
+                    throw new IOException("Malformed figure, geometry missing");
+                }
+                in.check();
+                if (tag == GEOMETRY) {
+                    in.need(4);
+                    contents = readGeometry(in, in.buffer.getInt(), version);
+                }
+                else if (tag == SEGMENTS || tag == TRIANGLES) {
+                    int width = tag == SEGMENTS ? 2 : 3;
+                    in.need(8);
+                    tolerance[width - 2] = in.buffer.getDouble();
+                    TSIntBuffer indices = readIndices(in, width, contents.vertices.size());
+                    if (tag == SEGMENTS) {
+                        contents.solved = indices;
+                    }
+                    else {
+                        contents.triangles = indices;
+                    }
+                }
+                else { //written by a newer version, only the known sections are used
+                    in.skip(length);
+                    continue;
+                }
+                if (in.offset() != end || (int) in.check() != crc) {
+                    throw new IOException("Malformed figure, section " + i + " is damaged");
+                }
+            }
+            if (contents == null) { //every caller only handles IOException
+                throw new IOException("No geometry section");
+            }
+            if (contents.isSolved() && tolerance[0] != tolerance[1]) { //from different solves
+                contents.solved = null;
+                contents.triangles = null;
+            }
+            contents.tolerance = contents.isSolved() ? tolerance[0] : Double.NaN;
+            return contents;
+        }
+    }
+
+    private static Contents readGeometry(Input in, int vertexCount, int version) throws IOException {
+        if (vertexCount < 0 || 16L * vertexCount + 4 > in.size - in.offset()) {
+            throw new IOException("Malformed figure, vertex count " + vertexCount + " doesn't fit " + in.size + " bytes");
+        }
+        List<TSVertex> vertices = new ArrayList<>(vertexCount);
+        for (int v = 0; v < vertexCount; ++v) {
+            in.need(16);
+            vertices.add(new TSVertex(in.buffer.getDouble(), in.buffer.getDouble()));
+        }
+        in.need(4);
+        int segmentCount = in.buffer.getInt();
+        if (segmentCount < 0 || 8L * segmentCount > in.size - in.offset()) {
+            throw new IOException("Malformed figure, segment count " + segmentCount + " doesn't fit " + in.size + " bytes");
+        }
+        List<TSSegment> segments = new ArrayList<>(segmentCount);
+        for (int s = 0; s < segmentCount; ++s) {
+            in.need(8);
+            int a = in.buffer.getInt();
+            int b = in.buffer.getInt();
+            if (a < 0 || a >= vertexCount || b < 0 || b >= vertexCount) {
+                throw new IOException("Malformed figure, segment " + s + " has vertices " + a + " and " + b + " of " + vertexCount);
+            }
+            segments.add(new TSSegment(vertices.get(a), vertices.get(b)));
+        }
+        return new Contents(version, vertices, segments);
+    }
+
+    private static TSIntBuffer readIndices(Input in, int width, int vertexCount) throws IOException {
+        in.need(4);
+        int count = in.buffer.getInt();
+        if (count < 0 || 4L * width * count > in.size - in.offset()) {
+            throw new IOException("Malformed figure, " + count + " solved entries don't fit " + in.size + " bytes");
+        }
+        TSIntBuffer indices = new TSIntBuffer(width * count);
+        for (int i = 0; i < width * count; ++i) {
+            in.need(4);
+            int v = in.buffer.getInt();
+            if (v < 0 || v >= vertexCount) {
+                throw new IOException("Malformed figure, solved vertex " + v + " of " + vertexCount);
+            }
+            indices.add(v);
+        }
+        return indices;
+    }
+
+    private static void writeIndices(Output out, int tag, double tolerance, TSIntBuffer indices, int width) throws IOException {
+        out.begin(tag);
+        out.need(12);
+        out.buffer.putDouble(tolerance).putInt(indices.size() / width);
+        for (int i = 0; i < indices.size(); ++i) {
+            out.need(4);
+            out.buffer.putInt(indices.get(i));
+        }
+        out.end();
+    }
+
+    private static class Input {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+        private final long size;
+        private long read = 0; //bytes read from the channel
+        private int checked = 0; //position in the buffer up to which the checksum is updated
+
+        private Input(FileChannel channel) throws IOException {
+            this.channel = channel;
+            size = channel.size();
+            buffer.limit(0);
+        }
+
+        private void need(int needed) throws IOException {
+            if (buffer.remaining() >= needed) {
+                return;
+            }
+            sum();
+            buffer.compact();
+            while (buffer.position() < needed) {
+                int n = channel.read(buffer);
+                if (n < 0) {
+                    throw new EOFException("Malformed figure, unexpected end of file");
+                }
+                read += n;
+            }
+            buffer.flip();
+            checked = 0;
+        }
+
+        private long offset() {
+            return read - buffer.remaining();
+        }
+
+        private long check() {
+            //checksum of the bytes used since the last check
+            sum();
+            long value = crc.getValue();
+            crc.reset();
+            return value;
+        }
+
+        private void skip(long length) throws IOException {
+            while (length > 0) {
+                need(1);
+                int n = (int) Math.min(length, buffer.remaining());
+                buffer.position(buffer.position() + n);
+                length -= n;
+            }
+            sum();
+        }
+
+        private void sum() {
+            ByteBuffer used = buffer.duplicate();
+            used.limit(buffer.position());
+            used.position(checked);
+            crc.update(used);
+            checked = buffer.position();
+        }
+    }
+
+    private static class Output {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+        private long section = -1; //file position of the header of the open section
+
+        private Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void need(int needed) throws IOException {
+            if (buffer.remaining() < needed) {
+                drain();
+            }
+        }
+
+        private void begin(int tag) throws IOException {
+            drain();
+            section = channel.position();
+            buffer.putInt(tag).putLong(0).putInt(0); //filled in by end()
+            drain();
+            crc.reset();
+        }
+
+        private void end() throws IOException {
+            drain();
+            long length = channel.position() - section - SECTION_HEADER;
+            ByteBuffer header = ByteBuffer.allocate(SECTION_HEADER - 4);
+            header.putLong(length).putInt((int) crc.getValue());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, section + 4 + header.position());
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            ByteBuffer written = buffer.duplicate();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            crc.update(written);
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package trianglesolver.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TSFigureGenerator {
+
+    public enum Family {
+        GRID, //n rows, n columns and the diagonals through their crossings
+        FAN, //n spokes from one apex to a base line
+        STAR, //n lines through one center and the polygon around their 2n ends, all of them cross at one computed point
+        COMPLETE, //all segments between n points in convex, general position
+        RANDOM, //n lines from side to side of the square
+        COLLINEAR //a chain of n nearly collinear segments crossed by lines just missing its inner vertices
+    }
+
+    private static final double NEAR = 0.01; //twice the default tolerance of TSFigure
+
+    private final long seed;
+    private final double side;
+
+    public TSFigureGenerator(long seed) {
+        this(seed, 1000);
+    }
+
+    public TSFigureGenerator(long seed, double side) {
+        //figures fill the square from (0, 0) to (side, side), the same seed always gives the same figure
+        if (!(side > 0)) {
+            throw new IllegalArgumentException("Side must be positive: " + side);
+        }
+        this.seed = seed;
+        this.side = side;
+    }
+
+    public List<TSSegment> segments(Family family, int n) {
+        //segments as they would be drawn, crossings are not split yet
+        if (n < 1) {
+            throw new IllegalArgumentException("Size must be positive: " + n);
+        }
+        Random random = new Random(seed);
+        List<TSSegment> segments = new ArrayList<>();
+        switch (family) {
+            case GRID:
+                double step = side / (n + 1);
+                if (step >= 1) { //whole coordinates keep the crossings exact, rounded ones break the diagonal chains
+                    step = Math.floor(step);
+                }
+                for (int i = 1; i <= n; ++i) {
+                    segments.add(segment(0, i * step, side, i * step));
+                    segments.add(segment(i * step, 0, i * step, side));
+                }
+                for (int i = 2 - n; i <= n - 2; ++i) { //x - y = i * step, clipped to the grid
+                    double from = Math.max(1, 1 + i);
+                    double to = Math.min(n, n + i);
+                    segments.add(segment(from * step, (from - i) * step, to * step, (to - i) * step));
+                }
+                break;
+            case FAN:
+                segments.add(segment(0, side, side, side));
+                for (int i = 0; i < n; ++i) {
+                    segments.add(segment(side / 2, 0, n == 1 ? side / 2 : side * i / (n - 1), side));
+                }
+                break;
+            case STAR:
+                TSVertex[] ends = new TSVertex[2 * n];
+                for (int i = 0; i < 2 * n; ++i) {
+                    double angle = Math.PI * i / n;
+                    ends[i] = new TSVertex(side / 2 + side / 2 * Math.cos(angle), side / 2 + side / 2 * Math.sin(angle));
+                }
+                for (int i = 0; i < n; ++i) {
+                    segments.add(new TSSegment(ends[i], ends[i + n]));
+                }
+                for (int i = 0; n > 1 && i < 2 * n; ++i) {
+                    segments.add(new TSSegment(ends[i], ends[(i + 1) % (2 * n)]));
+                }
+                break;
+            case COMPLETE:
+                double[] angles = new double[n]; //points on a circle are never collinear
+                for (int i = 0; i < n; ++i) {
+                    angles[i] = 2 * Math.PI * (i + 0.25 + 0.5 * random.nextDouble()) / n;
+                }
+                TSVertex[] points = new TSVertex[n];
+                for (int i = 0; i < n; ++i) {
+                    points[i] = new TSVertex(side / 2 + side / 2 * Math.cos(angles[i]), side / 2 + side / 2 * Math.sin(angles[i]));
+                }
+                for (int i = 0; i < n; ++i) {
+                    for (int j = i + 1; j < n; ++j) {
+                        segments.add(new TSSegment(points[i], points[j]));
+                    }
+                }
+                break;
+            case RANDOM:
+                for (int i = 0; i < n; ++i) {
+                    double[] a = boundary(random);
+                    double[] b = boundary(random);
+                    while (a[2] == b[2]) { //both ends on the same side would only run along it
+                        b = boundary(random);
+                    }
+                    segments.add(segment(a[0], a[1], b[0], b[1]));
+                }
+                break;
+            case COLLINEAR:
+                double length = side / n;
+                TSVertex previous = new TSVertex(0, side / 2);
+                for (int i = 1; i <= n; ++i) {
+                    TSVertex next = new TSVertex(i * length, side / 2 + (i == n ? 0 : (random.nextDouble() - 0.5) * 2 * NEAR));
+                    segments.add(new TSSegment(previous, next));
+                    if (i < n) { //crosses the chain between one and two tolerances beside the vertex
+                        double x = i * length + (random.nextBoolean() ? 1 : -1) * NEAR * (1 + random.nextDouble());
+                        segments.add(segment(x - length / 2, side / 4, x + length / 2, side * 3 / 4));
+                    }
+                    previous = next;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown family " + family);
+        }
+        return segments;
+    }
+
+    public TSFigure figure(Family family, int n) {
+        TSFigure figure = new TSFigure();
+        add(figure, family, n);
+        return figure;
+    }
+
+    public void add(TSFigure figure, Family family, int n) {
+        insert(figure, segments(family, n));
+    }
+
+    public static void insert(TSFigure figure, List<TSSegment> segments) {
+        //inserted like in the editor, ends snap to a vertex in the same place and crossing segments are split
+        TSSegmentInserter inserter = new TSSegmentInserter(figure);
+        for (TSSegment s : segments) {
+            inserter.insert(snap(figure, s.getVertexA()), snap(figure, s.getVertexB()));
+        }
+    }
+
+    public TSFigure write(Family family, int n, String path) throws IOException {
+        TSFigure figure = figure(family, n);
+        figure.exportToFile(path);
+        return figure;
+    }
+
+    private double[] boundary(Random random) {
+        //a point on one of the four sides and the side
+        double t = random.nextDouble() * side;
+        int edge = random.nextInt(4);
+        switch (edge) {
+            case 0:
+                return new double[]{t, 0, edge};
+            case 1:
+                return new double[]{side, t, edge};
+            case 2:
+                return new double[]{t, side, edge};
+            default:
+                return new double[]{0, t, edge};
+        }
+    }
+
+    private static TSVertex snap(TSFigure figure, TSVertex v) {
+        //the inserter tells vertices apart by identity, the given ones are never shared with the figure
+        List<TSSegment> basic = figure.getBasicSegments();
+        for (int i : figure.findSegments(v, v)) {
+            TSSegment s = basic.get(i);
+            if (v.isCloseEnough(s.getVertexA(), 0)) {
+                return s.getVertexA();
+            }
+            if (v.isCloseEnough(s.getVertexB(), 0)) {
+                return s.getVertexB();
+            }
+        }
+        return new TSVertex(v.getX(), v.getY());
+    }
+
+    private static TSSegment segment(double ax, double ay, double bx, double by) {
+        return new TSSegment(new TSVertex(ax, ay), new TSVertex(bx, by));
+    }
+}
@@ -0,0 +1,121 @@
+package trianglesolver.util;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TSFigureStore {
+
+    final TSVertex[] vertex;
+    final double[] x;
+    final double[] y;
+    final int[] segmentA;
+    final int[] segmentB;
+    final int[] offset; //incident segments of every vertex (compressed rows)
+    final int[] incident;
+    private final Map<TSVertex, Integer> ids;
+
+    public TSFigureStore(List<TSVertex> vertices, List<TSSegment> segments) {
+        ids = new IdentityHashMap<>(vertices.size() * 2);
+        int count = segments.size();
+        TSVertex[] all = new TSVertex[vertices.size() + 2 * count];
+        int size = 0;
+        for (TSVertex v : vertices) {
+            if (!ids.containsKey(v)) {
+                ids.put(v, size);
+                all[size++] = v;
+            }
+        }
+        segmentA = new int[count];
+        segmentB = new int[count];
+        for (int s = 0; s < count; ++s) { //segments can keep a vertex which was snapped to another one
+            TSSegment segment = segments.get(s);
+            for (int side = 0; side < 2; ++side) {
+                TSVertex v = side == 0 ? segment.getVertexA() : segment.getVertexB();
+                Integer id = ids.get(v);
+                if (id == null) {
+                    id = size;
+                    ids.put(v, size);
+                    all[size++] = v;
+                }
+                if (side == 0) {
+                    segmentA[s] = id;
+                }
+                else {
+                    segmentB[s] = id;
+                }
+            }
+        }
+        vertex = Arrays.copyOf(all, size);
+        x = new double[size];
+        y = new double[size];
+        for (int v = 0; v < size; ++v) {
+            x[v] = vertex[v].getX();
+            y[v] = vertex[v].getY();
+        }
+        offset = new int[size + 1];
+        for (int s = 0; s < count; ++s) {
+            offset[segmentA[s] + 1]++;
+            offset[segmentB[s] + 1]++;
+        }
+        for (int v = 0; v < size; ++v) {
+            offset[v + 1] += offset[v];
+        }
+        incident = new int[2 * count];
+        int[] fill = Arrays.copyOf(offset, size);
+        for (int s = 0; s < count; ++s) {
+            incident[fill[segmentA[s]]++] = s;
+            incident[fill[segmentB[s]]++] = s;
+        }
+    }
+
+    public int getVertexCount() {
+        return vertex.length;
+    }
+
+    public int getSegmentCount() {
+        return segmentA.length;
+    }
+
+    public TSVertex getVertex(int v) {
+        return vertex[v];
+    }
+
+    public int indexOf(TSVertex v) {
+        Integer id = ids.get(v);
+        return id == null ? -1 : id;
+    }
+
+    public double getX(int v) {
+        return x[v];
+    }
+
+    public double getY(int v) {
+        return y[v];
+    }
+
+    public int getSegmentA(int s) {
+        return segmentA[s];
+    }
+
+    public int getSegmentB(int s) {
+        return segmentB[s];
+    }
+
+    public int getDegree(int v) {
+        return offset[v + 1] - offset[v];
+    }
+
+    public int getIncident(int v, int i) {
+        return incident[offset[v] + i];
+    }
+
+    public int getOther(int s, int v) {
+        return segmentA[s] == v ? segmentB[s] : segmentA[s];
+    }
+
+    public boolean isBetween(int common, int a, int b, double tolerance) {
+        return TSGeometry.isOnSegment(x[common], y[common], x[a], y[a], x[b], y[b], tolerance);
+    }
+}
@@ -0,0 +1,103 @@
+package trianglesolver.util;
+
+public class TSGeometry {
+
+    public static final double EPSILON = 1e-9; //tolerance of the editor, only absorbs rounding
+
+    private TSGeometry() {
+        //disabled, only static predicates on coordinates.
+    }
+
+    public static double orientation(double ax, double ay, double bx, double by, double px, double py) {
+        //twice the signed area of the triangle a, b, p, positive when p is on the left of a to b
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+
+    public static int side(double ax, double ay, double bx, double by, double px, double py, double tolerance) {
+        //side of the line through a and b, 0 when p is within tolerance of it
+        double cross = orientation(ax, ay, bx, by, px, py);
+        double dx = bx - ax;
+        double dy = by - ay;
+        double length = dx * dx + dy * dy;
+        if (length == 0) {
+            double ex = px - ax;
+            double ey = py - ay;
+            return ex * ex + ey * ey <= tolerance * tolerance ? 0 : 1;
+        }
+        if (cross * cross <= tolerance * tolerance * length) {
+            return 0;
+        }
+        return cross > 0 ? 1 : -1;
+    }
+
+    public static double projection(double ax, double ay, double bx, double by, double px, double py) {
+        //position of the projection of p on the line, 0 at a and 1 at b
+        double dx = bx - ax;
+        double dy = by - ay;
+        double length = dx * dx + dy * dy;
+        return length == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / length;
+    }
+
+    public static double lineDistance(double ax, double ay, double bx, double by, double px, double py) {
+        //squared distance of p from the line through a and b
+        double dx = bx - ax;
+        double dy = by - ay;
+        double length = dx * dx + dy * dy;
+        if (length == 0) {
+            return pointDistance(ax, ay, px, py);
+        }
+        double cross = orientation(ax, ay, bx, by, px, py);
+        return cross * cross / length;
+    }
+
+    public static double pointDistance(double ax, double ay, double px, double py) {
+        //squared distance of two points
+        double dx = px - ax;
+        double dy = py - ay;
+        return dx * dx + dy * dy;
+    }
+
+    public static boolean isOnSegment(double px, double py, double ax, double ay, double bx, double by, double tolerance) {
+        //p is within tolerance of the line through a and b and projects inside the segment, the same for both orientations
+        if (ax > bx || (ax == bx && ay > by)) {
+            double t = ax;
+            ax = bx;
+            bx = t;
+            t = ay;
+            ay = by;
+            by = t;
+        }
+        double dx = bx - ax;
+        double dy = by - ay;
+        double ex = px - ax;
+        double ey = py - ay;
+        double length = dx * dx + dy * dy;
+        if (length == 0) {
+            return ex * ex + ey * ey <= tolerance * tolerance;
+        }
+        double dot = ex * dx + ey * dy;
+        if (dot < 0 || dot > length) {
+            return false;
+        }
+        double cross = ex * dy - ey * dx;
+        return cross * cross <= tolerance * tolerance * length;
+    }
+
+    public static double intersection(double ax, double ay, double bx, double by, double cx, double cy, double dx, double dy) {
+        //position of the crossing on the segment from a to b like projection, NaN when the segments don't cross
+        double rx = bx - ax;
+        double ry = by - ay;
+        double sx = dx - cx;
+        double sy = dy - cy;
+        double denominator = rx * sy - ry * sx;
+        if (denominator == 0) { //parallel segments don't have intersection
+            return Double.NaN;
+        }
+        double t = ((cx - ax) * sy - (cy - ay) * sx) / denominator;
+        double u = ((cx - ax) * ry - (cy - ay) * rx) / denominator;
+        if (0 <= t && t <= 1 && 0 <= u && u <= 1) {
+            return t;
+        }
+        return Double.NaN;
+    }
+}
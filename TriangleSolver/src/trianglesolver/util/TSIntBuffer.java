@@ -0,0 +1,63 @@
+package trianglesolver.util;
+
+import java.util.Arrays;
+
+public class TSIntBuffer {
+
+    private int[] data;
+    private int size;
+
+    public TSIntBuffer() {
+        this(16);
+    }
+
+    public TSIntBuffer(int capacity) {
+        data = new int[Math.max(capacity, 4)];
+        size = 0;
+    }
+
+    public void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[size++] = value;
+    }
+
+    public void addAll(TSIntBuffer buffer) {
+        if (size + buffer.size > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + buffer.size));
+        }
+        System.arraycopy(buffer.data, 0, data, size, buffer.size);
+        size += buffer.size;
+    }
+
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return data[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int removeLast() {
+        if (size == 0) {
+            throw new IndexOutOfBoundsException("Buffer is empty");
+        }
+        return data[--size];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
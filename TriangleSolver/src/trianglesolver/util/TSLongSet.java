@@ -0,0 +1,84 @@
+package trianglesolver.util;
+
+import java.util.Arrays;
+
+public class TSLongSet {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] table;
+    private int size;
+    private boolean hasEmpty; //EMPTY marks free slots, so the value itself is kept aside
+
+    public TSLongSet() {
+        this(16);
+    }
+
+    public TSLongSet(int expected) {
+        int capacity = 16;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        table = new long[capacity];
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            boolean added = !hasEmpty;
+            hasEmpty = true;
+            return added;
+        }
+        if ((size + 1) * 2 > table.length) {
+            grow();
+        }
+        int mask = table.length - 1;
+        int i = hash(value) & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == value) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+        size++;
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return hasEmpty;
+        }
+        int mask = table.length - 1;
+        int i = hash(value) & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == value) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size + (hasEmpty ? 1 : 0);
+    }
+
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        Arrays.fill(table, EMPTY);
+        size = 0;
+        for (long value : old) {
+            if (value != EMPTY) {
+                add(value);
+            }
+        }
+    }
+
+    private static int hash(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
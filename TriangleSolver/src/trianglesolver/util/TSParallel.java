@@ -0,0 +1,120 @@
+package trianglesolver.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class TSParallel {
+
+    private TSParallel() {
+        //only static helpers
+    }
+
+    static int chunks(ForkJoinPool pool, int size) {
+        int parallelism = pool == null ? 1 : pool.getParallelism();
+        return Math.max(1, Math.min(size, parallelism * 16));
+    }
+
+    static int window(ForkJoinPool pool) {
+        //tasks in flight when their results are taken in order, enough to keep every thread busy
+        int parallelism = pool == null ? 1 : pool.getParallelism();
+        return 2 * parallelism;
+    }
+
+    static <T> List<Future<T>> submit(ForkJoinPool pool, List<Callable<T>> tasks) {
+        return submit(pool, tasks, null);
+    }
+
+    static <T> List<Future<T>> submit(ForkJoinPool pool, List<Callable<T>> tasks, TSSolveHandle handle) {
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(submit(pool, task, handle));
+        }
+        return futures;
+    }
+
+    static <T> Future<T> submit(ForkJoinPool pool, Callable<T> task, TSSolveHandle handle) {
+        //the cpu time of the pool threads goes to the current phase of the solve
+        if (pool == null) {
+            return new Deferred<>(task);
+        }
+        return pool.submit(handle == null ? task : handle.timed(task));
+    }
+
+    static <T> List<T> invoke(ForkJoinPool pool, List<Callable<T>> tasks) {
+        return invoke(pool, tasks, null);
+    }
+
+    static <T> List<T> invoke(ForkJoinPool pool, List<Callable<T>> tasks, TSSolveHandle handle) {
+        List<T> results = new ArrayList<>(tasks.size());
+        for (Future<T> future : submit(pool, tasks, handle)) {
+            results.add(get(future));
+        }
+        return results;
+    }
+
+    static <T> T get(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Solving interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private static class Deferred<T> implements Future<T> { //runs the task on the calling thread once it is needed
+
+        private Callable<T> task;
+        private T value;
+        private ExecutionException failure;
+
+        public Deferred(Callable<T> task) {
+            this.task = task;
+        }
+
+        @Override
+        public boolean cancel(boolean interrupt) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return task == null;
+        }
+
+        @Override
+        public T get() throws ExecutionException {
+            if (task != null) {
+                try {
+                    value = task.call();
+                } catch (Exception ex) {
+                    failure = new ExecutionException(ex);
+                }
+                task = null;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return value;
+        }
+
+        @Override
+        public T get(long timeout, TimeUnit unit) throws ExecutionException {
+            return get();
+        }
+    }
+}
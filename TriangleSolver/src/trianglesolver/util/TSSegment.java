@@ -4,6 +4,7 @@ public class TSSegment {
 
     private TSVertex A;
     private TSVertex B;
+    private TSFigure owner = null; //figure which indexes this segment by its vertices
 
     public TSSegment(TSVertex a, TSVertex b) {
         A = a;
@@ -18,14 +19,26 @@ public class TSSegment {
         if (a == null) {
             throw new NullPointerException();
         }
+        TSVertex old = A;
         A = a;
+        if (owner != null) {
+            owner.moved(this, old, B);
+        }
     }
 
     public void setVertexB(TSVertex b) {
         if (b == null) {
             throw new NullPointerException();
         }
+        TSVertex old = B;
         B = b;
+        if (owner != null) {
+            owner.moved(this, A, old);
+        }
+    }
+
+    void setOwner(TSFigure owner) {
+        this.owner = owner;
     }
 
     public TSVertex getVertexA() {
@@ -37,108 +50,24 @@ public class TSSegment {
     }
 
     public boolean contains(TSVertex v) {
-        if (v == A || v == B) {
-            return true;
-        }
-        if (v.getX() == A.getX() && v.getY() == A.getY()) {
-            return true;
-        }
-        if (v.getX() == B.getX() && v.getY() == B.getY()) {
-            return true;
-        }
-        double a = (B.getY() - A.getY()) / (B.getX() - A.getX());
-        double b = A.getY() - a * A.getX();
-
-        if (v.getY() == a * v.getX() + b) {
-            if (Math.min(A.getX(), B.getX()) <= v.getX() && v.getX() <= Math.max(A.getX(), B.getX())) {
-                if (Math.min(A.getY(), B.getY()) <= v.getY() && v.getY() <= Math.max(A.getY(), B.getY())) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return v == A || v == B || TSGeometry.isOnSegment(v.getX(), v.getY(), A.getX(), A.getY(), B.getX(), B.getY(), TSGeometry.EPSILON);
     }
 
     public TSVertex getIntersection(TSSegment segment) {
-        double x;
-        double y;
-        if (A.getX() == B.getX() && segment.getVertexA().getX() == segment.getVertexB().getX()) {
+        double t = TSGeometry.intersection(A.getX(), A.getY(), B.getX(), B.getY(),
+                segment.getVertexA().getX(), segment.getVertexA().getY(), segment.getVertexB().getX(), segment.getVertexB().getY());
+        if (Double.isNaN(t)) {
             return null;
         }
-        else if (A.getX() == B.getX()) {
-            double a1 = (segment.getVertexB().getY() - segment.getVertexA().getY()) / (segment.getVertexB().getX() - segment.getVertexA().getX());
-            double b1 = segment.getVertexA().getY() - a1 * segment.getVertexA().getX();
-            x = A.getX();
-            y = a1 * x + b1; //intersection Y
-        }
-        else if (segment.getVertexA().getX() == segment.getVertexB().getX()) {
-            double a1 = (B.getY() - A.getY()) / (B.getX() - A.getX());
-            double b1 = A.getY() - a1 * A.getX();
-            x = segment.getVertexA().getX();
-            y = a1 * x + b1; //intersection Y
-        }
-        else {
-            double a1 = (B.getY() - A.getY()) / (B.getX() - A.getX());
-            double b1 = A.getY() - a1 * A.getX();
-            double a2 = (segment.getVertexB().getY() - segment.getVertexA().getY()) / (segment.getVertexB().getX() - segment.getVertexA().getX());
-            double b2 = segment.getVertexA().getY() - a2 * segment.getVertexA().getX();
-            if (a1 != a2) { //parallel lines don't have intersection
-                x = (b2 - b1) / (a1 - a2); //intersection X
-                y = a1 * x + b1; //intersection Y
-            }
-            else {
-                return null;
-            }
-        }
-
-        if (Math.min(A.getX(), B.getX()) <= x && x <= Math.max(A.getX(), B.getX())) {
-            if (Math.min(A.getY(), B.getY()) <= y && y <= Math.max(A.getY(), B.getY())) {
-                if (Math.min(segment.getVertexA().getX(), segment.getVertexB().getX()) <= x && x <= Math.max(segment.getVertexA().getX(), segment.getVertexB().getX())) {
-                    if (Math.min(segment.getVertexA().getY(), segment.getVertexB().getY()) <= y && y <= Math.max(segment.getVertexA().getY(), segment.getVertexB().getY())) {
-                        return new TSVertex(x, y);
-                    }
-                }
-            }
-        }
-        return null;
+        return new TSVertex(A.getX() + t * (B.getX() - A.getX()), A.getY() + t * (B.getY() - A.getY()));
     }
 
     public TSVertex getVertexProjection(TSVertex v) {
-        if (A.getX() == B.getX()) {
-            return new TSVertex(A.getX(), v.getY());
-        }
-        if (A.getY() == B.getY()) {
-            return new TSVertex(v.getX(), A.getY());
-        }
-        double a1 = (B.getY() - A.getY()) / (B.getX() - A.getX());
-        double b1 = A.getY() - a1 * A.getX();
-        double a2 = (-1 / a1);
-        double b2 = v.getY() - a2 * v.getX();
-
-        double x = (b2 - b1) / (a1 - a2);
-        double y = a1 * x + b1;
-
-        return new TSVertex(x, y);
+        double t = TSGeometry.projection(A.getX(), A.getY(), B.getX(), B.getY(), v.getX(), v.getY());
+        return new TSVertex(A.getX() + t * (B.getX() - A.getX()), A.getY() + t * (B.getY() - A.getY()));
     }
 
     public double getDistance(TSVertex v) {
-        if (A.getX() == B.getX()) {
-            return (A.getX() - v.getX()) * (A.getX() - v.getX());
-        }
-        if (A.getY() == B.getY()) {
-            return (A.getY() - v.getY()) * (A.getY() - v.getY());
-        }
-        double a1 = (B.getY() - A.getY()) / (B.getX() - A.getX());
-        double b1 = A.getY() - a1 * A.getX();
-        double a2 = (-1 / a1);
-        double b2 = v.getY() - a2 * v.getX();
-
-        double x = (b2 - b1) / (a1 - a2);
-        double y = a1 * x + b1;
-
-        double dx = x - v.getX();
-        double dy = y - v.getY();
-
-        return dx * dx + dy * dy;
+        return TSGeometry.lineDistance(A.getX(), A.getY(), B.getX(), B.getY(), v.getX(), v.getY());
     }
 }
@@ -0,0 +1,399 @@
+package trianglesolver.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+public class TSSegmentExtender {
+
+    private final double tolerance;
+    private final ForkJoinPool pool;
+    private final TSSolveHandle handle;
+
+    private TSFigureStore store;
+    private TSLongSet pairs;
+
+    public TSSegmentExtender(double tolerance) {
+        this(tolerance, null);
+    }
+
+    public TSSegmentExtender(double tolerance, ForkJoinPool pool) {
+        this(tolerance, pool, null);
+    }
+
+    public TSSegmentExtender(double tolerance, ForkJoinPool pool, TSSolveHandle handle) {
+        this.tolerance = tolerance;
+        this.pool = pool;
+        this.handle = handle;
+    }
+
+    public TSIntBuffer extend(TSFigureStore figure) {
+        //the pairs of the first solver's scan repeated until nothing was added, in component order instead of scan order
+        //and without the pairs of basic segments it added again, so the set of triangles stays the same ('ant check' compares them)
+        store = figure;
+        final int count = store.getSegmentCount();
+        final int size = store.getVertexCount();
+        pairs = new TSLongSet(count);
+        for (int s = 0; s < count; ++s) {
+            pairs.add(key(store.segmentA[s], store.segmentB[s]));
+        }
+        //straight links: two segments meeting at a vertex which lies on the segment between their other ends
+        List<Callable<TSIntBuffer>> linking = new ArrayList<>();
+        int chunks = TSParallel.chunks(pool, size);
+        if (handle != null) {
+            handle.addWorkTotal(size); //one unit per vertex linked, then one per segment of a component
+        }
+        for (int c = 0; c < chunks; ++c) {
+            final int from = (int) ((long) size * c / chunks);
+            final int to = (int) ((long) size * (c + 1) / chunks);
+            linking.add(new Callable<TSIntBuffer>() {
+                @Override
+                public TSIntBuffer call() {
+                    long[] tally = new long[2];
+                    TSIntBuffer linked = link(from, to, tally);
+                    report(tally, to - from);
+                    return linked;
+                }
+            });
+        }
+        int[] parent = new int[count];
+        int[] linksA = new int[count];
+        int[] linksB = new int[count];
+        int[] links = new int[count];
+        for (int s = 0; s < count; ++s) {
+            parent[s] = s;
+        }
+        TSIntBuffer linked = new TSIntBuffer(); //triples of both segments and the common vertex
+        for (TSIntBuffer part : TSParallel.invoke(pool, linking, handle)) {
+            linked.addAll(part);
+        }
+        final int[] next = new int[count * 2]; //linked segment at end A (2s) and end B (2s + 1)
+        Arrays.fill(next, -1);
+        record(linked, links, linksA, linksB, next);
+        for (int l = 0; l < linked.size(); l += 3) {
+            union(parent, linked.get(l), linked.get(l + 1));
+        }
+        //group segments into components, a component is a simple chain when it is a path of links
+        Map<Integer, TSIntBuffer> components = new LinkedHashMap<>();
+        for (int s = 0; s < count; ++s) {
+            if (links[s] > 0) {
+                int root = find(parent, s);
+                TSIntBuffer component = components.get(root);
+                if (component == null) {
+                    component = new TSIntBuffer(4);
+                    components.put(root, component);
+                }
+                component.add(s);
+            }
+        }
+        List<Callable<TSIntBuffer>> extending = new ArrayList<>();
+        long linkedSegments = 0;
+        for (final TSIntBuffer component : components.values()) {
+            final boolean chain = isChain(component, links, linksA, linksB);
+            linkedSegments += component.size();
+            extending.add(new Callable<TSIntBuffer>() {
+                @Override
+                public TSIntBuffer call() {
+                    long[] tally = new long[2];
+                    TSIntBuffer part = chain ? extendChain(component, next, tally) : extendCluster(component, tally);
+                    report(tally, component.size());
+                    return part;
+                }
+            });
+        }
+        if (handle != null) {
+            handle.addWorkTotal(linkedSegments);
+        }
+        //merge in component order, so the result does not depend on the parallelism
+        TSIntBuffer result = new TSIntBuffer();
+        for (TSIntBuffer part : TSParallel.invoke(pool, extending, handle)) {
+            for (int i = 0; i < part.size(); i += 2) {
+                int a = part.get(i);
+                int b = part.get(i + 1);
+                if (pairs.add(key(a, b))) {
+                    result.add(a);
+                    result.add(b);
+                }
+            }
+        }
+        return result;
+    }
+
+    public List<TSIntBuffer> findComponents(TSFigureStore figure, TSIntBuffer seeds) {
+        List<TSIntBuffer> components = new ArrayList<>();
+        around(figure, seeds, components, false);
+        return components;
+    }
+
+    public TSIntBuffer extendAround(TSFigureStore figure, TSIntBuffer seeds, List<TSIntBuffer> components) {
+        return around(figure, seeds, components, true);
+    }
+
+    private TSIntBuffer around(TSFigureStore figure, TSIntBuffer seeds, List<TSIntBuffer> components, boolean extend) {
+        //only the components of the seed segments, links are found at the vertices they reach
+        store = figure;
+        final int count = store.getSegmentCount();
+        pairs = new TSLongSet(count);
+        for (int s = 0; s < count; ++s) {
+            pairs.add(key(store.segmentA[s], store.segmentB[s]));
+        }
+        int[] linksA = new int[count];
+        int[] linksB = new int[count];
+        int[] links = new int[count];
+        int[] next = new int[count * 2];
+        Arrays.fill(next, -1);
+        boolean[] reached = new boolean[count];
+        Map<Integer, TSIntBuffer> linkedAt = new HashMap<>();
+        TSIntBuffer result = new TSIntBuffer();
+        long[] tally = new long[2];
+        for (int i = 0; i < seeds.size(); ++i) {
+            int seed = seeds.get(i);
+            if (reached[seed]) {
+                continue;
+            }
+            reached[seed] = true;
+            TSIntBuffer component = new TSIntBuffer(4);
+            component.add(seed);
+            for (int head = 0; head < component.size(); ++head) {
+                int s = component.get(head);
+                for (int side = 0; side < 2; ++side) {
+                    int c = side == 0 ? store.segmentA[s] : store.segmentB[s];
+                    TSIntBuffer linked = linkedAt.get(c);
+                    if (linked == null) {
+                        linked = link(c, c + 1, tally);
+                        linkedAt.put(c, linked);
+                        record(linked, links, linksA, linksB, next);
+                    }
+                    for (int l = 0; l < linked.size(); l += 3) {
+                        int other = linked.get(l) == s ? linked.get(l + 1) : linked.get(l + 1) == s ? linked.get(l) : -1;
+                        if (other != -1 && !reached[other]) {
+                            reached[other] = true;
+                            component.add(other);
+                        }
+                    }
+                }
+            }
+            int[] sorted = component.toArray(); //same order as a full extension, so derived segments keep their direction
+            Arrays.sort(sorted);
+            component.clear();
+            for (int s : sorted) {
+                component.add(s);
+            }
+            components.add(component);
+            if (!extend || links[seed] == 0) {
+                continue;
+            }
+            TSIntBuffer part = isChain(component, links, linksA, linksB) ? extendChain(component, next, tally) : extendCluster(component, tally);
+            for (int p = 0; p < part.size(); p += 2) {
+                int a = part.get(p);
+                int b = part.get(p + 1);
+                if (pairs.add(key(a, b))) {
+                    result.add(a);
+                    result.add(b);
+                }
+            }
+        }
+        report(tally, 0);
+        return result;
+    }
+
+    private void record(TSIntBuffer linked, int[] links, int[] linksA, int[] linksB, int[] next) {
+        for (int l = 0; l < linked.size(); l += 3) {
+            int common = linked.get(l + 2);
+            for (int side = 0; side < 2; ++side) {
+                int s = linked.get(l + side);
+                links[s]++;
+                if (store.segmentA[s] == common) {
+                    linksA[s]++;
+                    next[2 * s] = linked.get(l + 1 - side);
+                }
+                else {
+                    linksB[s]++;
+                    next[2 * s + 1] = linked.get(l + 1 - side);
+                }
+            }
+        }
+    }
+
+    private static boolean isChain(TSIntBuffer component, int[] links, int[] linksA, int[] linksB) {
+        int edges = 0;
+        for (int i = 0; i < component.size(); ++i) {
+            int s = component.get(i);
+            edges += links[s];
+            if (linksA[s] > 1 || linksB[s] > 1) {
+                return false;
+            }
+        }
+        return edges / 2 == component.size() - 1;
+    }
+
+    private TSIntBuffer link(int from, int to, long[] tally) {
+        //tally counts the pairs examined and the projections, every task keeps its own
+        TSIntBuffer linked = new TSIntBuffer();
+        for (int c = from; c < to; ++c) {
+            checkStop();
+            int degree = store.getDegree(c);
+            tally[0] += (long) degree * (degree - 1) / 2;
+            for (int i = 0; i < degree; ++i) {
+                for (int j = i + 1; j < degree; ++j) {
+                    int sI = store.getIncident(c, i);
+                    int sJ = store.getIncident(c, j);
+                    int p = store.getOther(sI, c);
+                    int q = store.getOther(sJ, c);
+                    if (p != q && between(c, p, q, tally)) {
+                        linked.add(sI);
+                        linked.add(sJ);
+                        linked.add(c);
+                    }
+                }
+            }
+        }
+        return linked;
+    }
+
+    private TSIntBuffer extendChain(TSIntBuffer component, int[] next, long[] tally) {
+        int start = component.get(0);
+        for (int i = 0; i < component.size(); ++i) {
+            int s = component.get(i);
+            if (next[2 * s] == -1 || next[2 * s + 1] == -1) {
+                start = s;
+                break;
+            }
+        }
+        //walk the chain from its free end and collect the vertices in order
+        TSIntBuffer walk = new TSIntBuffer(component.size() + 1);
+        int current = start;
+        int at = next[2 * start] == -1 ? store.segmentA[start] : store.segmentB[start];
+        walk.add(at);
+        while (current != -1) {
+            at = store.getOther(current, at);
+            walk.add(at);
+            current = next[2 * current + (store.segmentA[current] == at ? 0 : 1)];
+        }
+        int[] chain = walk.toArray();
+        int n = chain.length;
+        BitSet[] derivable = new BitSet[n];
+        for (int i = n - 1; i >= 0; --i) {
+            checkStop();
+            derivable[i] = new BitSet(n);
+            if (i + 1 < n) {
+                derivable[i].set(i + 1);
+            }
+            for (int j = i + 2; j < n; ++j) {
+                int vi = chain[i];
+                int vj = chain[j];
+                boolean derived = false;
+                if (derivable[i].get(j - 1) && between(chain[j - 1], vi, vj, tally)) {
+                    derived = true;
+                }
+                else if (derivable[i + 1].get(j) && between(chain[i + 1], vi, vj, tally)) {
+                    derived = true;
+                }
+                else {
+                    for (int k = i + 2; k < j - 1 && !derived; ++k) {
+                        if (derivable[i].get(k) && derivable[k].get(j) && between(chain[k], vi, vj, tally)) {
+                            derived = true;
+                        }
+                    }
+                }
+                if (derived) {
+                    derivable[i].set(j);
+                }
+            }
+        }
+        TSIntBuffer result = new TSIntBuffer();
+        for (int i = 0; i < n; ++i) {
+            for (int j = derivable[i].nextSetBit(i + 2); j >= 0; j = derivable[i].nextSetBit(j + 1)) {
+                result.add(chain[i]);
+                result.add(chain[j]);
+            }
+        }
+        return result;
+    }
+
+    private TSIntBuffer extendCluster(TSIntBuffer component, long[] tally) {
+        //general closure for components where a vertex links more than two segments
+        Map<Integer, TSIntBuffer> adjacent = new HashMap<>();
+        TSLongSet generated = new TSLongSet();
+        TSIntBuffer queue = new TSIntBuffer();
+        for (int i = 0; i < component.size(); ++i) {
+            int s = component.get(i);
+            connect(adjacent, store.segmentA[s], store.segmentB[s]);
+            queue.add(store.segmentA[s]);
+            queue.add(store.segmentB[s]);
+        }
+        TSIntBuffer result = new TSIntBuffer();
+        for (int head = 0; head < queue.size(); head += 2) {
+            checkStop();
+            for (int side = 0; side < 2; ++side) {
+                int common = queue.get(head + side);
+                int end = queue.get(head + 1 - side);
+                TSIntBuffer around = adjacent.get(common);
+                for (int i = 0; i < around.size(); ++i) {
+                    int z = around.get(i);
+                    long k = key(end, z);
+                    if (z != end && !pairs.contains(k) && !generated.contains(k) && between(common, end, z, tally)) {
+                        generated.add(k);
+                        result.add(end);
+                        result.add(z);
+                        connect(adjacent, end, z);
+                        queue.add(end);
+                        queue.add(z);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean between(int v, int a, int b, long[] tally) {
+        tally[1]++;
+        return store.isBetween(v, a, b, tolerance);
+    }
+
+    private void report(long[] tally, long work) {
+        if (handle != null) {
+            handle.count(tally[0], tally[1], 0);
+            handle.addWorkDone(work);
+        }
+    }
+
+    private void checkStop() {
+        if (handle != null) {
+            handle.checkStop();
+        }
+    }
+
+    private static void connect(Map<Integer, TSIntBuffer> adjacent, int a, int b) {
+        if (!adjacent.containsKey(a)) {
+            adjacent.put(a, new TSIntBuffer(4));
+        }
+        if (!adjacent.containsKey(b)) {
+            adjacent.put(b, new TSIntBuffer(4));
+        }
+        adjacent.get(a).add(b);
+        adjacent.get(b).add(a);
+    }
+
+    static long key(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    private static int find(int[] parent, int s) {
+        while (parent[s] != s) {
+            parent[s] = parent[parent[s]];
+            s = parent[s];
+        }
+        return s;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        parent[find(parent, a)] = find(parent, b);
+    }
+}
@@ -0,0 +1,225 @@
+package trianglesolver.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+class TSSegmentIndex {
+
+    //uniform grid sized like TSFigureGrid from the extent and the segment count, but never finer than the mean
+    //segment length, so the cells a figure takes grow with its segments and not with its coordinates
+    private static final double MARGIN = 1.0 / 64; //of a cell, covers rounding of points computed on a segment
+    private static final double REBUILD = 2; //cells are laid out again once the right size is this far off
+
+    private final Map<Long, TSIntBuffer> cells = new HashMap<>(); //indices of segments passing through every cell
+    private double[] ends = new double[64]; //ends of every segment as indexed, its cells are found again from them
+    private boolean[] indexed = new boolean[16];
+    private int count = 0;
+    private double length = 0; //sum over the indexed segments
+    private double minX = Double.POSITIVE_INFINITY;
+    private double minY = Double.POSITIVE_INFINITY;
+    private double maxX = Double.NEGATIVE_INFINITY;
+    private double maxY = Double.NEGATIVE_INFINITY;
+    private double cell = 0; //0 until the first segment is indexed
+    private double originX = 0;
+    private double originY = 0;
+    private int[] seen = new int[16];
+    private int stamp = 0;
+
+    void add(int s, TSSegment segment) {
+        //a segment indexed before is moved, its old cells are left
+        if (s >= indexed.length) {
+            int size = Math.max(indexed.length * 2, s + 1);
+            indexed = Arrays.copyOf(indexed, size);
+            seen = Arrays.copyOf(seen, size);
+            ends = Arrays.copyOf(ends, 4 * size);
+        }
+        if (indexed[s]) {
+            visit(s, false);
+            length -= length(s);
+        }
+        else {
+            indexed[s] = true;
+            count++;
+        }
+        ends[4 * s] = segment.getVertexA().getX();
+        ends[4 * s + 1] = segment.getVertexA().getY();
+        ends[4 * s + 2] = segment.getVertexB().getX();
+        ends[4 * s + 3] = segment.getVertexB().getY();
+        length += length(s);
+        minX = Math.min(minX, Math.min(ends[4 * s], ends[4 * s + 2]));
+        minY = Math.min(minY, Math.min(ends[4 * s + 1], ends[4 * s + 3]));
+        maxX = Math.max(maxX, Math.max(ends[4 * s], ends[4 * s + 2]));
+        maxY = Math.max(maxY, Math.max(ends[4 * s + 1], ends[4 * s + 3]));
+        double size = size();
+        if (cell == 0 || size > cell * REBUILD || size < cell / REBUILD) {
+            rebuild(size);
+        }
+        else {
+            visit(s, true);
+        }
+    }
+
+    void clear() {
+        cells.clear();
+        ends = new double[64];
+        indexed = new boolean[16];
+        seen = new int[16];
+        count = 0;
+        length = 0;
+        minX = minY = Double.POSITIVE_INFINITY;
+        maxX = maxY = Double.NEGATIVE_INFINITY;
+        cell = 0;
+        stamp = 0;
+    }
+
+    int[] find(TSVertex a, TSVertex b) {
+        //indices of segments which can touch the segment from a to b in ascending order
+        if (cell == 0) {
+            return new int[0];
+        }
+        if (++stamp == 0) {
+            Arrays.fill(seen, 0);
+            stamp = 1;
+        }
+        final TSIntBuffer found = new TSIntBuffer();
+        cover(a.getX(), a.getY(), b.getX(), b.getY(), new Cells() {
+            @Override
+            public void visit(long cx, long cy) {
+                TSIntBuffer segments = cells.get(key(cx, cy));
+                if (segments == null) {
+                    return;
+                }
+                for (int j = 0; j < segments.size(); ++j) {
+                    int s = segments.get(j);
+                    if (seen[s] != stamp) {
+                        seen[s] = stamp;
+                        found.add(s);
+                    }
+                }
+            }
+        });
+        int[] sorted = found.toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private interface Cells {
+
+        void visit(long cx, long cy);
+    }
+
+    private double size() {
+        //side of a cell: the extent over the square root of the count, at least the mean segment length
+        double extent = Math.max(maxX - minX, maxY - minY);
+        double side = Math.ceil(Math.sqrt(count));
+        double size = Math.max(extent / side, length / count);
+        return size > 0 && !Double.isInfinite(size) ? size : 1;
+    }
+
+    private void rebuild(double size) {
+        cells.clear();
+        cell = size;
+        originX = minX;
+        originY = minY;
+        for (int s = 0; s < indexed.length; ++s) {
+            if (indexed[s]) {
+                visit(s, true);
+            }
+        }
+    }
+
+    private void visit(final int s, final boolean add) {
+        cover(ends[4 * s], ends[4 * s + 1], ends[4 * s + 2], ends[4 * s + 3], new Cells() {
+            @Override
+            public void visit(long cx, long cy) {
+                Long key = key(cx, cy);
+                TSIntBuffer found = cells.get(key);
+                if (add) {
+                    if (found == null) {
+                        found = new TSIntBuffer(4);
+                        cells.put(key, found);
+                    }
+                    if (found.isEmpty() || found.get(found.size() - 1) != s) {
+                        found.add(s);
+                    }
+                }
+                else if (found != null) {
+                    TSIntBuffer kept = new TSIntBuffer(found.size());
+                    for (int i = 0; i < found.size(); ++i) {
+                        if (found.get(i) != s) {
+                            kept.add(found.get(i));
+                        }
+                    }
+                    if (kept.isEmpty()) {
+                        cells.remove(key);
+                    }
+                    else {
+                        cells.put(key, kept);
+                    }
+                }
+            }
+        });
+    }
+
+    private void cover(double ax, double ay, double bx, double by, Cells cells) {
+        //cells within the margin of the segment column by column, only the part within the indexed bounds
+        double margin = cell * MARGIN;
+        if (ax > bx) {
+            double t = ax;
+            ax = bx;
+            bx = t;
+            t = ay;
+            ay = by;
+            by = t;
+        }
+        double lowX = minX - margin;
+        double highX = maxX + margin;
+        if (bx < lowX || ax > highX) {
+            return;
+        }
+        if (ax != bx) { //clipped to the bounds, a long query doesn't walk through empty cells
+            double x0 = Math.max(ax, lowX);
+            double x1 = Math.min(bx, highX);
+            double y0 = ay + (by - ay) * (x0 - ax) / (bx - ax);
+            double y1 = ay + (by - ay) * (x1 - ax) / (bx - ax);
+            ax = x0;
+            ay = y0;
+            bx = x1;
+            by = y1;
+        }
+        long from = column(ax - margin);
+        long to = column(bx + margin);
+        for (long cx = from; cx <= to; ++cx) {
+            double y0 = ay;
+            double y1 = by;
+            if (ax != bx) {
+                double x0 = Math.max(ax, originX + cx * cell - margin);
+                double x1 = Math.min(bx, originX + (cx + 1) * cell + margin);
+                y0 = ay + (by - ay) * (x0 - ax) / (bx - ax);
+                y1 = ay + (by - ay) * (x1 - ax) / (bx - ax);
+            }
+            long low = row(Math.max(Math.min(y0, y1), minY) - margin);
+            long high = row(Math.min(Math.max(y0, y1), maxY) + margin);
+            for (long cy = low; cy <= high; ++cy) {
+                cells.visit(cx, cy);
+            }
+        }
+    }
+
+    private double length(int s) {
+        return Math.hypot(ends[4 * s + 2] - ends[4 * s], ends[4 * s + 3] - ends[4 * s + 1]);
+    }
+
+    private long column(double x) {
+        return (long) Math.floor((x - originX) / cell);
+    }
+
+    private long row(double y) {
+        return (long) Math.floor((y - originY) / cell);
+    }
+
+    private static Long key(long cx, long cy) {
+        return cx * 0x9E3779B97F4A7C15L + cy; //colliding cells only share a bucket, a query gets a few more candidates
+    }
+}
@@ -0,0 +1,300 @@
+package trianglesolver.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+public class TSSegmentInserter {
+
+    private static final double SNAP = 1e-6; //crossings this close to a vertex are at the vertex, far below the tolerance of the solver
+
+    private final TSFigure figure;
+
+    public TSSegmentInserter(TSFigure figure) {
+        this.figure = figure;
+    }
+
+    public void insertAll(List<TSSegment> segments) {
+        //same as inserting them one by one, every segment is split by those inserted before it
+        for (TSSegment s : segments) {
+            insert(s.getVertexA(), s.getVertexB());
+        }
+    }
+
+    public void insert(TSVertex a, TSVertex b) {
+        //only segments found around the new one are checked, in the order of the figure
+        List<TSSegment> basic = figure.getBasicSegments();
+        if (a.isCloseEnough(b, 0)) { //both vertices are in the same place
+            return;
+        }
+        for (int i : figure.findSegments(a, a)) {
+            TSSegment s = basic.get(i);
+            boolean isA = false;
+            boolean isB = false;
+            if (a.isCloseEnough(s.getVertexA(), 0) || a.isCloseEnough(s.getVertexB(), 0)) {
+                isA = true;
+            }
+            if (b.isCloseEnough(s.getVertexA(), 0) || b.isCloseEnough(s.getVertexB(), 0)) {
+                isB = true;
+            }
+            if (isA && isB) { //redundant segment, do nothing
+                return;
+            }
+            if (s.contains(a) && s.contains(b)) {
+                return;
+            }
+        }
+        TSSegment newForA = null;
+        TSSegment newForB = null;
+        int[] around = around(a, b, -1);
+        for (int k = 0; k < around.length; ++k) { //solve vertex binding to segment
+            TSSegment s = basic.get(around[k]);
+            TSVertex lastA = a;
+            TSVertex lastB = b;
+            if (s.contains(a) && a != s.getVertexA() && a != s.getVertexB()) {
+                TSVertex segmentB = s.getVertexB();
+                s.setVertexB(a);
+                newForA = new TSSegment(a, segmentB);
+                TSVertex currA = a;
+                if (contains(currA, b, s.getVertexA())) {
+                    a = s.getVertexA();
+                }
+                if (contains(currA, b, segmentB)) {
+                    a = segmentB;
+                }
+            }
+            if (s.contains(b) && b != s.getVertexA() && b != s.getVertexB()) {
+                TSVertex segmentB = s.getVertexB();
+                s.setVertexB(b);
+                newForB = new TSSegment(b, segmentB);
+                TSVertex currB = b;
+                if (contains(a, currB, s.getVertexA())) {
+                    b = s.getVertexA();
+                }
+                if (contains(a, currB, segmentB)) {
+                    b = segmentB;
+                }
+            }
+            if (a != lastA || b != lastB) {
+                around = around(a, b, around[k]);
+                k = -1;
+            }
+        }
+        if (newForA != null) {
+            figure.addSegment(newForA);
+        }
+        if (newForB != null) {
+            figure.addSegment(newForB);
+        }
+        //solve overlapping segments (direction of solving overlaping is from point A to point B of new created segment)
+        List<TSSegment> toAdd = new ArrayList<>();
+        TSVertex originalA = a;
+        TSVertex originalB = b;
+        boolean overrlapingOccured;
+        double left = Double.MAX_VALUE;
+        do {
+            if (a == b || a.isCloseEnough(b, 0.005)) {
+                break;
+            }
+            double distance = a.getDistance(b);
+            if (distance >= left) { //every step has to get closer to b, vertices a rounding apart could send it back and forth
+                toAdd.add(new TSSegment(a, b));
+                break;
+            }
+            left = distance;
+            overrlapingOccured = false;
+            TSSegment closest = null;
+            double dist = Double.MAX_VALUE;
+            for (int i : figure.findSegments(a, b)) { //find overlapping segment and reduce them
+                TSSegment s = basic.get(i);
+                if (!s.getVertexA().isCloseEnough(s.getVertexB(), SNAP) && isOnLine(originalA, originalB, s.getVertexA()) && isOnLine(originalA, originalB, s.getVertexB())) { //two segments on the same line (possible overlapping)
+                    double distA = a.getDistance(s.getVertexA());
+                    double distB = a.getDistance(s.getVertexB());
+                    if (distA == 0.0 || distB == 0.0) { //one common vertex
+                        if (distA == 0.0) {
+                            if (contains(a, b, s.getVertexB())) {
+                                dist = 0;
+                                closest = s;
+                                break;
+                            }
+                            else if (s.contains(b)) {
+                                return;
+                            }
+                            else {
+                                continue;
+                            }
+                        }
+                        if (distB == 0.0) {
+                            if (contains(a, b, s.getVertexA())) {
+                                dist = 0;
+                                closest = s;
+                                break;
+                            }
+                            else if (s.contains(b)) {
+                                return;
+                            }
+                            else {
+                                continue;
+                            }
+                        }
+                    }
+                    if (contains(a, b, s.getVertexA())) { //vertex A is inside of new segment
+                        if (distA < dist) {
+                            dist = distA;
+                            closest = s;
+                        }
+                    }
+                    if (contains(a, b, s.getVertexB())) { //vertex B is inside of new segment
+                        if (distB < dist) {
+                            dist = distB;
+                            closest = s;
+                        }
+                    }
+                }
+            }
+            if (closest != null) {
+                overrlapingOccured = true;
+                double distA = a.getDistance(closest.getVertexA());
+                double distB = a.getDistance(closest.getVertexB());
+                if (distA == 0.0 || distB == 0.0) { //one common vertex
+                    if (distA == 0.0) { //the walk goes on from the vertex of the figure, a copy would be a second vertex in its place
+                        a = closest.getVertexB();
+                    }
+                    else {
+                        a = closest.getVertexA();
+                    }
+                    continue;
+                }
+                if (contains(a, b, closest.getVertexA()) && contains(a, b, closest.getVertexB())) {
+                    if (distA == dist) {
+                        toAdd.add(new TSSegment(a, closest.getVertexA()));
+                        a = closest.getVertexA();
+                        continue;
+                    }
+                    else {
+                        toAdd.add(new TSSegment(a, closest.getVertexB()));
+                        a = closest.getVertexB();
+                        continue;
+                    }
+                }
+                if (contains(a, b, closest.getVertexA())) {
+                    if (!closest.contains(a)) {
+                        toAdd.add(new TSSegment(a, closest.getVertexA()));
+                    }
+                    a = closest.getVertexA();
+                    continue;
+                }
+                if (contains(a, b, closest.getVertexB())) {
+                    if (!closest.contains(a)) {
+                        toAdd.add(new TSSegment(a, closest.getVertexB()));
+                    }
+                    a = closest.getVertexB();
+                    continue;
+                }
+            }
+            else {
+                toAdd.add(new TSSegment(a, b));
+            }
+        } while (overrlapingOccured);
+
+        //solve interestion of segments
+        for (TSSegment next : toAdd) {
+            List<TSIntersectingSegments> intersections = new ArrayList<>();
+            for (int i : figure.findSegments(next.getVertexA(), next.getVertexB())) { //find intersecting segments
+                TSSegment s = basic.get(i);
+                if (next.getVertexA() != s.getVertexA() && next.getVertexB() != s.getVertexB() && next.getVertexA() != s.getVertexB() && next.getVertexB() != s.getVertexA()) {
+                    TSVertex v = next.getIntersection(s);
+                    if (v != null) {
+                        double dx = next.getVertexA().getX() - v.getX();
+                        double dy = next.getVertexA().getY() - v.getY();
+                        double distance = dx * dx + dy * dy;
+                        intersections.add(new TSIntersectingSegments(s, v, distance));
+                    }
+                }
+            }
+            if (!intersections.isEmpty()) { //resolve intersecting
+                intersections.sort(new Comparator<TSIntersectingSegments>() {
+                    @Override
+                    public int compare(TSIntersectingSegments t1, TSIntersectingSegments t2) {
+                        if (t1.distance > t2.distance) {
+                            return 1;
+                        }
+                        if (t1.distance < t2.distance) {
+                            return -1;
+                        }
+                        return 0;
+                    }
+                });
+                for (TSIntersectingSegments tsis : intersections) {
+                    //lines through one point cross there once, the vertex already in the figure is split at
+                    TSVertex cross = vertexAt(tsis.intersection, next.getVertexA(), next.getVertexB(), tsis.segment.getVertexA(), tsis.segment.getVertexB());
+                    if (cross != tsis.segment.getVertexA() && cross != tsis.segment.getVertexB()) {
+                        TSVertex segmentB = tsis.segment.getVertexB();
+                        tsis.segment.setVertexB(cross);
+                        figure.addSegment(new TSSegment(cross, segmentB));
+                    }
+                    if (cross != next.getVertexA() && cross != next.getVertexB()) {
+                        figure.addSegment(new TSSegment(next.getVertexA(), cross));
+                        next.setVertexA(cross);
+                    }
+                }
+            }
+            figure.addSegment(next);
+        }
+    }
+
+    private static TSVertex vertexAt(TSVertex cross, TSVertex... vertices) {
+        //a crossing computed at an end of either segment is that end, rounding would make a second vertex in its place
+        for (TSVertex v : vertices) {
+            if (v.isCloseEnough(cross, SNAP)) {
+                return v;
+            }
+        }
+        return cross;
+    }
+
+    private static boolean contains(TSVertex a, TSVertex b, TSVertex v) {
+        return v == a || v == b || TSGeometry.isOnSegment(v.getX(), v.getY(), a.getX(), a.getY(), b.getX(), b.getY(), TSGeometry.EPSILON);
+    }
+
+    private static boolean isOnLine(TSVertex a, TSVertex b, TSVertex v) {
+        return TSGeometry.side(a.getX(), a.getY(), b.getX(), b.getY(), v.getX(), v.getY(), TSGeometry.EPSILON) == 0;
+    }
+
+    private int[] around(TSVertex a, TSVertex b, int after) {
+        //segments which can contain either end, in the order of the figure and behind the last one checked
+        int[] atA = figure.findSegments(a, a);
+        int[] atB = figure.findSegments(b, b);
+        int[] merged = new int[atA.length + atB.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < atA.length || j < atB.length) {
+            int next = j == atB.length || (i < atA.length && atA[i] <= atB[j]) ? atA[i] : atB[j];
+            if (i < atA.length && atA[i] == next) {
+                i++;
+            }
+            if (j < atB.length && atB[j] == next) {
+                j++;
+            }
+            if (next > after) {
+                merged[size++] = next;
+            }
+        }
+        return Arrays.copyOf(merged, size);
+    }
+
+    private static class TSIntersectingSegments {
+
+        private final TSSegment segment;
+        private final TSVertex intersection;
+        private final double distance;
+
+        private TSIntersectingSegments(TSSegment s, TSVertex v, double d) {
+            segment = s;
+            intersection = v;
+            distance = d;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package trianglesolver.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+class TSSolution {
+
+    final TSFigureStore store;
+    final TSIntBuffer segments; //pairs of vertex indices into the store, basic segments included
+    final TSIntBuffer triangles; //triples of vertex indices into the store
+    final TSIntBuffer added;
+    final TSIntBuffer removed;
+
+    TSSolution(TSFigureStore store, TSIntBuffer segments, TSIntBuffer triangles) {
+        this(store, segments, triangles, null, null);
+    }
+
+    private TSSolution(TSFigureStore store, TSIntBuffer segments, TSIntBuffer triangles, TSIntBuffer added, TSIntBuffer removed) {
+        this.store = store;
+        this.segments = segments;
+        this.triangles = triangles;
+        this.added = added;
+        this.removed = removed;
+    }
+
+    boolean matches(TSFigureStore figure) {
+        //true when the indices of this solution point to the same vertices and segments in the figure
+        if (figure.getVertexCount() != store.getVertexCount() || figure.getSegmentCount() != store.getSegmentCount()) {
+            return false;
+        }
+        for (int v = 0; v < store.getVertexCount(); ++v) {
+            if (figure.vertex[v] != store.vertex[v] || figure.x[v] != store.x[v] || figure.y[v] != store.y[v]) {
+                return false;
+            }
+        }
+        for (int s = 0; s < store.getSegmentCount(); ++s) {
+            if (figure.segmentA[s] != store.segmentA[s] || figure.segmentB[s] != store.segmentB[s]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    TSSolution update(TSFigureStore figure, double tolerance, TSSolveHandle handle) {
+        //returns null when the figure changed in another way than by added or split segments
+        if (matches(figure)) { //nothing changed, like a solution read with the figure
+            return new TSSolution(figure, segments, triangles, new TSIntBuffer(), new TSIntBuffer());
+        }
+        int oldSize = store.getVertexCount();
+        int oldCount = store.getSegmentCount();
+        int size = figure.getVertexCount();
+        int count = figure.getSegmentCount();
+        if (count < oldCount) {
+            return null;
+        }
+        int[] map = new int[oldSize];
+        for (int v = 0; v < oldSize; ++v) {
+            map[v] = figure.indexOf(store.vertex[v]);
+            if (map[v] == -1 || figure.x[map[v]] != store.x[v] || figure.y[map[v]] != store.y[v]) {
+                return null;
+            }
+        }
+        TSIntBuffer dirty = new TSIntBuffer();
+        for (int s = 0; s < count; ++s) {
+            if (s >= oldCount || figure.segmentA[s] != map[store.segmentA[s]] || figure.segmentB[s] != map[store.segmentB[s]]) {
+                dirty.add(s);
+            }
+        }
+
+        //regenerate the components of the changed segments
+        TSSegmentExtender extender = new TSSegmentExtender(tolerance, null, handle);
+        List<TSIntBuffer> components = new ArrayList<>();
+        TSIntBuffer grown = new TSIntBuffer();
+        for (int i = 0; i < dirty.size(); ++i) {
+            grown.add(figure.segmentA[dirty.get(i)]);
+            grown.add(figure.segmentB[dirty.get(i)]);
+        }
+        grown.addAll(extender.extendAround(figure, dirty, components));
+        TSLongSet grownSet = new TSLongSet(grown.size() / 2);
+        for (int i = 0; i < grown.size(); i += 2) {
+            grownSet.add(TSSegmentExtender.key(grown.get(i), grown.get(i + 1)));
+        }
+
+        //a previous segment between two vertices of such a component, as it is now or as it was, may be gone
+        TSIntBuffer changed = new TSIntBuffer();
+        for (int i = 0; i < dirty.size() && dirty.get(i) < oldCount; ++i) {
+            changed.add(dirty.get(i));
+        }
+        List<TSIntBuffer> regions = new ArrayList<>();
+        for (TSIntBuffer component : components) {
+            regions.add(ends(figure, component, null));
+        }
+        for (TSIntBuffer component : extender.findComponents(store, changed)) {
+            regions.add(ends(store, component, map));
+        }
+        TSIntBuffer previous = new TSIntBuffer(segments.size());
+        for (int i = 0; i < segments.size(); ++i) {
+            previous.add(map[segments.get(i)]);
+        }
+        boolean[] needed = new boolean[size];
+        for (TSIntBuffer region : regions) {
+            for (int i = 0; i < region.size(); ++i) {
+                needed[region.get(i)] = true;
+            }
+        }
+        int[][] around = adjacency(previous, size, needed);
+        int[] offset = around[0];
+        int[] target = around[1];
+        int[] through = around[2];
+        int[] stamp = new int[size];
+        Arrays.fill(stamp, -1);
+        TSLongSet candidates = new TSLongSet();
+        TSIntBuffer ends = new TSIntBuffer();
+        for (int r = 0; r < regions.size(); ++r) {
+            handle.checkStop();
+            TSIntBuffer region = regions.get(r);
+            for (int i = 0; i < region.size(); ++i) {
+                stamp[region.get(i)] = r;
+            }
+            for (int i = 0; i < region.size(); ++i) {
+                int v = region.get(i);
+                for (int j = offset[v]; j < offset[v + 1]; ++j) {
+                    int w = target[j];
+                    long k = TSSegmentExtender.key(v, w);
+                    if (stamp[w] == r && !grownSet.contains(k) && !isBasic(figure, v, w) && candidates.add(k)) { //basic segments always stay
+                        ends.add(v);
+                        ends.add(w);
+                    }
+                }
+            }
+        }
+        if (!ends.isEmpty()) { //another component passing both ends can still generate it
+            boolean[] seeded = new boolean[count];
+            for (TSIntBuffer component : components) {
+                for (int i = 0; i < component.size(); ++i) {
+                    seeded[component.get(i)] = true;
+                }
+            }
+            boolean[] regenerated = Arrays.copyOf(seeded, count);
+            for (int i = 0; i < ends.size(); ++i) {
+                int v = ends.get(i);
+                for (int j = 0; j < figure.getDegree(v); ++j) {
+                    seeded[figure.getIncident(v, j)] = true;
+                }
+            }
+            TSIntBuffer seeds = new TSIntBuffer();
+            for (int s = 0; s < count; ++s) {
+                if (seeded[s] && !regenerated[s]) {
+                    seeds.add(s);
+                }
+            }
+            TSIntBuffer more = extender.extendAround(figure, seeds, new ArrayList<TSIntBuffer>());
+            for (int i = 0; i < more.size(); i += 2) {
+                if (grownSet.add(TSSegmentExtender.key(more.get(i), more.get(i + 1)))) {
+                    grown.add(more.get(i));
+                    grown.add(more.get(i + 1));
+                    needed[more.get(i)] = true;
+                    needed[more.get(i + 1)] = true;
+                }
+            }
+            around = adjacency(previous, size, needed);
+            offset = around[0];
+            target = around[1];
+            through = around[2];
+        }
+
+        //segments not generated again are gone, the ones generated in the other direction are replaced
+        TSLongSet gone = new TSLongSet();
+        for (int i = 0; i < ends.size(); i += 2) {
+            long k = TSSegmentExtender.key(ends.get(i), ends.get(i + 1));
+            if (!grownSet.contains(k)) {
+                gone.add(k);
+            }
+        }
+        boolean[] known = new boolean[grown.size() / 2];
+        for (int i = 0; i < grown.size(); i += 2) {
+            int a = grown.get(i);
+            int b = grown.get(i + 1);
+            int t = find(offset, target, through, a, b);
+            known[i / 2] = t != -1;
+            if (t != -1 && previous.get(2 * t) != a) {
+                gone.add(TSSegmentExtender.key(a, b));
+            }
+        }
+        TSIntBuffer next = new TSIntBuffer(previous.size() + grown.size());
+        for (int i = 0; i < previous.size(); i += 2) {
+            if (gone.size() == 0 || !gone.contains(TSSegmentExtender.key(previous.get(i), previous.get(i + 1)))) {
+                next.add(previous.get(i));
+                next.add(previous.get(i + 1));
+            }
+        }
+        int kept = next.size() / 2;
+        for (int i = 0; i < grown.size(); i += 2) {
+            int a = grown.get(i);
+            int b = grown.get(i + 1);
+            if (!known[i / 2] || gone.contains(TSSegmentExtender.key(a, b))) {
+                next.add(a);
+                next.add(b);
+            }
+        }
+
+        //triangles on a removed segment are gone, new ones need at least one new segment
+        TSIntBuffer found = new TSIntBuffer(triangles.size());
+        TSIntBuffer lost = new TSIntBuffer();
+        for (int i = 0; i < triangles.size(); i += 3) {
+            int a = map[triangles.get(i)];
+            int b = map[triangles.get(i + 1)];
+            int c = map[triangles.get(i + 2)];
+            boolean removedSide = gone.size() > 0 && (gone.contains(TSSegmentExtender.key(a, b))
+                    || gone.contains(TSSegmentExtender.key(b, c)) || gone.contains(TSSegmentExtender.key(a, c)));
+            TSIntBuffer into = removedSide ? lost : found;
+            into.add(a);
+            into.add(b);
+            into.add(c);
+        }
+        needed = new boolean[size];
+        for (int i = 2 * kept; i < next.size(); ++i) {
+            needed[next.get(i)] = true;
+        }
+        around = adjacency(next, size, needed);
+        offset = around[0];
+        target = around[1];
+        through = around[2];
+        TSIntBuffer fresh = new TSIntBuffer();
+        long pairsExamined = 0;
+        long projections = 0;
+        long collinear = 0;
+        for (int e = kept; e < next.size() / 2; ++e) {
+            handle.checkStop();
+            int u = next.get(2 * e);
+            int v = next.get(2 * e + 1);
+            if (u == v) {
+                continue;
+            }
+            int i = offset[u];
+            int j = offset[v];
+            while (i < offset[u + 1] && j < offset[v + 1]) {
+                if (target[i] < target[j]) {
+                    i++;
+                }
+                else if (target[i] > target[j]) {
+                    j++;
+                }
+                else {
+                    int w = target[i];
+                    int uw = through[i]; //first of duplicated segments, as in a full solve
+                    int vw = through[j];
+                    boolean earlier = (uw >= kept && uw < e) || (vw >= kept && vw < e); //found from that segment already
+                    if (w != u && w != v && !earlier) {
+                        pairsExamined++;
+                        int rejected = isOnSide(figure, next, u, vw, tolerance) ? 1 : isOnSide(figure, next, v, uw, tolerance) ? 2
+                                : isOnSide(figure, next, w, find(offset, target, through, u, v), tolerance) ? 3 : 0;
+                        projections += rejected == 0 ? 3 : rejected;
+                        if (rejected == 0) {
+                            fresh.add(u);
+                            fresh.add(v);
+                            fresh.add(w);
+                        }
+                        else {
+                            collinear++;
+                        }
+                    }
+                    while (i < offset[u + 1] && target[i] == w) {
+                        i++;
+                    }
+                    while (j < offset[v + 1] && target[j] == w) {
+                        j++;
+                    }
+                }
+            }
+        }
+        handle.count(pairsExamined, projections, collinear);
+        found.addAll(fresh);
+        if (!lost.isEmpty() && !fresh.isEmpty()) { //triangles on a replaced segment are found again, they did not change
+            Set<List<Integer>> before = triples(lost);
+            Set<List<Integer>> after = triples(fresh);
+            lost = without(lost, after);
+            fresh = without(fresh, before);
+        }
+        return new TSSolution(figure, next, found, fresh, lost);
+    }
+
+    private static TSIntBuffer ends(TSFigureStore figure, TSIntBuffer component, int[] map) {
+        //vertices of the segments of a component, mapped to the indices of the current store when the map is given
+        TSIntBuffer ends = new TSIntBuffer(2 * component.size());
+        for (int i = 0; i < component.size(); ++i) {
+            int s = component.get(i);
+            ends.add(map == null ? figure.segmentA[s] : map[figure.segmentA[s]]);
+            ends.add(map == null ? figure.segmentB[s] : map[figure.segmentB[s]]);
+        }
+        return ends;
+    }
+
+    private static Set<List<Integer>> triples(TSIntBuffer triangles) {
+        Set<List<Integer>> set = new HashSet<>();
+        for (int i = 0; i < triangles.size(); i += 3) {
+            set.add(triple(triangles, i));
+        }
+        return set;
+    }
+
+    private static TSIntBuffer without(TSIntBuffer triangles, Set<List<Integer>> set) {
+        TSIntBuffer rest = new TSIntBuffer();
+        for (int i = 0; i < triangles.size(); i += 3) {
+            if (!set.contains(triple(triangles, i))) {
+                rest.add(triangles.get(i));
+                rest.add(triangles.get(i + 1));
+                rest.add(triangles.get(i + 2));
+            }
+        }
+        return rest;
+    }
+
+    private static List<Integer> triple(TSIntBuffer triangles, int i) {
+        Integer[] t = new Integer[]{triangles.get(i), triangles.get(i + 1), triangles.get(i + 2)};
+        Arrays.sort(t);
+        return Arrays.asList(t);
+    }
+
+    private static int[][] adjacency(TSIntBuffer pairs, int size, boolean[] needed) {
+        //neighbours of the needed vertices sorted by vertex and then by segment, with the segment they come from
+        int count = pairs.size() / 2;
+        int[] offset = new int[size + 1];
+        for (int s = 0; s < count; ++s) {
+            int a = pairs.get(2 * s);
+            int b = pairs.get(2 * s + 1);
+            if (needed[a]) {
+                offset[a + 1]++;
+            }
+            if (needed[b]) {
+                offset[b + 1]++;
+            }
+        }
+        for (int v = 0; v < size; ++v) {
+            offset[v + 1] += offset[v];
+        }
+        long[] entries = new long[offset[size]];
+        int[] fill = Arrays.copyOf(offset, size);
+        for (int s = 0; s < count; ++s) {
+            int a = pairs.get(2 * s);
+            int b = pairs.get(2 * s + 1);
+            if (needed[a]) {
+                entries[fill[a]++] = ((long) b << 32) | s;
+            }
+            if (needed[b]) {
+                entries[fill[b]++] = ((long) a << 32) | s;
+            }
+        }
+        int[] target = new int[entries.length];
+        int[] through = new int[entries.length];
+        for (int v = 0; v < size; ++v) {
+            if (offset[v + 1] - offset[v] > 1) {
+                Arrays.sort(entries, offset[v], offset[v + 1]);
+            }
+        }
+        for (int i = 0; i < entries.length; ++i) {
+            target[i] = (int) (entries[i] >>> 32);
+            through[i] = (int) entries[i];
+        }
+        return new int[][]{offset, target, through};
+    }
+
+    private static int find(int[] offset, int[] target, int[] through, int u, int v) {
+        //first of the segments between both vertices, -1 when there is none
+        int i = Arrays.binarySearch(target, offset[u], offset[u + 1], v);
+        if (i < 0) {
+            return -1;
+        }
+        while (i > offset[u] && target[i - 1] == v) {
+            i--;
+        }
+        return through[i];
+    }
+
+    private static boolean isBasic(TSFigureStore figure, int v, int w) {
+        for (int i = 0; i < figure.getDegree(v); ++i) {
+            if (figure.getOther(figure.getIncident(v, i), v) == w) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isOnSide(TSFigureStore figure, TSIntBuffer pairs, int v, int side, double tolerance) {
+        return figure.isBetween(v, pairs.get(2 * side), pairs.get(2 * side + 1), tolerance);
+    }
+}
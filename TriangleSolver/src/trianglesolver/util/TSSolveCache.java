@@ -0,0 +1,305 @@
+package trianglesolver.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+public class TSSolveCache {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int SPILL_MAGIC = 0x54535343; //"TSSC"
+    private static final long ENTRY_OVERHEAD = 128; //map entry, key and buffers
+
+    private final long capacity; //bytes of index buffers kept in memory
+    private final Path directory; //every solution is also written there when not null
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); //least recently used first
+    private final Set<String> pending = new HashSet<>(); //keys being read or written in the directory, outside the lock
+    private long size = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long loads = 0;
+    private long evictions = 0;
+
+    private static class Entry {
+
+        private final TSIntBuffer segments;
+        private final TSIntBuffer triangles;
+
+        private Entry(TSIntBuffer segments, TSIntBuffer triangles) {
+            this.segments = segments;
+            this.triangles = triangles;
+        }
+
+        private long weight() {
+            return 4L * (segments.size() + triangles.size()) + ENTRY_OVERHEAD;
+        }
+    }
+
+    public TSSolveCache(long capacity) {
+        this(capacity, null);
+    }
+
+    public TSSolveCache(long capacity, Path directory) {
+        //solutions not fitting the capacity are only kept in the directory, which outlives the cache
+        this.capacity = capacity;
+        this.directory = directory;
+    }
+
+    public static String key(TSFigureStore figure, double tolerance) {
+        //SHA-256 of the tolerance, the coordinates in store order and the vertex indices of every basic segment
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex); //every Java platform has SHA-256
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.putDouble(tolerance).putInt(figure.getVertexCount()).putInt(figure.getSegmentCount());
+        for (int v = 0; v < figure.getVertexCount(); ++v) {
+            if (buffer.remaining() < 16) {
+                update(digest, buffer);
+            }
+            buffer.putDouble(figure.x[v] == 0 ? 0 : figure.x[v]).putDouble(figure.y[v] == 0 ? 0 : figure.y[v]); //-0 is 0
+        }
+        for (int s = 0; s < figure.getSegmentCount(); ++s) {
+            if (buffer.remaining() < 8) {
+                update(digest, buffer);
+            }
+            buffer.putInt(figure.segmentA[s]).putInt(figure.segmentB[s]);
+        }
+        update(digest, buffer);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 15, 16)).append(Character.forDigit(b & 15, 16));
+        }
+        return hex.toString();
+    }
+
+    synchronized public long getHits() {
+        return hits;
+    }
+
+    synchronized public long getMisses() {
+        return misses;
+    }
+
+    synchronized public long getLoads() {
+        //hits read back from the directory
+        return loads;
+    }
+
+    synchronized public long getEvictions() {
+        return evictions;
+    }
+
+    synchronized public int getEntries() {
+        return entries.size();
+    }
+
+    synchronized public long getSize() {
+        return size;
+    }
+
+    synchronized public void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    TSSolution get(String key, TSFigureStore figure) {
+        //the solution of a figure with the same key, its indices point into the store of the figure
+        //the file is read without the lock, other keys are served meanwhile and a second reader of the key waits for it
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            try {
+                while (entry == null && pending.contains(key)) {
+                    wait();
+                    entry = entries.get(key);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt(); //the solve is being cancelled, solving again is never wrong
+                misses++;
+                return null;
+            }
+            if (entry == null && directory != null) {
+                pending.add(key);
+            }
+        }
+        if (entry == null && directory != null) {
+            Entry loaded = null;
+            try {
+                loaded = load(key, figure);
+            } finally {
+                synchronized (this) {
+                    if (loaded != null) {
+                        loads++;
+                        remember(key, loaded);
+                    }
+                    pending.remove(key);
+                    notifyAll();
+                }
+            }
+            entry = loaded;
+        }
+        synchronized (this) {
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        return new TSSolution(figure, entry.segments, entry.triangles);
+    }
+
+    void put(String key, TSSolution solution) {
+        //solutions are never changed once kept, so the buffers are shared
+        //kept in memory at once and written without the lock, a reader of the key waits until the file is complete
+        Entry entry = new Entry(solution.segments, solution.triangles);
+        synchronized (this) {
+            if (entries.containsKey(key) || pending.contains(key)) {
+                return;
+            }
+            remember(key, entry);
+            if (directory == null) {
+                return;
+            }
+            pending.add(key);
+        }
+        try {
+            spill(key, entry);
+        } finally {
+            synchronized (this) {
+                pending.remove(key);
+                notifyAll();
+            }
+        }
+    }
+
+    private void remember(String key, Entry entry) {
+        if (entry.weight() > capacity) {
+            return;
+        }
+        entries.put(key, entry);
+        size += entry.weight();
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (size > capacity) {
+            size -= eldest.next().weight();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private void spill(String key, Entry entry) {
+        //written to a file of its own and moved over the final name, a reader never sees half a file
+        //and caches of other processes sharing the directory never write into the same temporary file
+        Path file = directory.resolve(key + ".tss");
+        if (Files.exists(file)) {
+            return;
+        }
+        Path temporary = null;
+        try {
+            Files.createDirectories(directory);
+            temporary = Files.createTempFile(directory, key, ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                buffer.putInt(SPILL_MAGIC).putInt(entry.segments.size()).putInt(entry.triangles.size());
+                TSIntBuffer[] parts = {entry.segments, entry.triangles};
+                for (TSIntBuffer part : parts) {
+                    for (int i = 0; i < part.size(); ++i) {
+                        if (buffer.remaining() < 4) {
+                            write(channel, buffer);
+                        }
+                        buffer.putInt(part.get(i));
+                    }
+                }
+                write(channel, buffer);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE); //replaces a file another process moved there first
+        } catch (IOException ex) {
+            //the cache only saves time, a solution which can't be written stays in memory
+            try {
+                if (temporary != null) {
+                    Files.deleteIfExists(temporary);
+                }
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private Entry load(String key, TSFigureStore figure) {
+        Path file = directory.resolve(key + ".tss");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < 12 || length > Integer.MAX_VALUE) {
+                throw new IOException("Malformed cache entry " + file);
+            }
+            ByteBuffer bytes = ByteBuffer.allocate((int) length);
+            while (bytes.hasRemaining()) {
+                if (channel.read(bytes) < 0) {
+                    throw new IOException("Malformed cache entry " + file);
+                }
+            }
+            bytes.flip();
+            IntBuffer ints = bytes.asIntBuffer();
+            int magic = ints.get();
+            int segmentCount = ints.get();
+            int triangleCount = ints.get();
+            if (magic != SPILL_MAGIC || segmentCount < 0 || triangleCount < 0 || segmentCount % 2 != 0 || triangleCount % 3 != 0
+                    || 4L * (3 + (long) segmentCount + triangleCount) != length) {
+                throw new IOException("Malformed cache entry " + file);
+            }
+            TSIntBuffer segments = read(ints, segmentCount, figure.getVertexCount());
+            TSIntBuffer triangles = read(ints, triangleCount, figure.getVertexCount());
+            if (segments == null || triangles == null) {
+                throw new IOException("Malformed cache entry " + file);
+            }
+            return new Entry(segments, triangles);
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException ex) {
+            try { //solved again and written anew
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+            return null;
+        }
+    }
+
+    private static TSIntBuffer read(IntBuffer ints, int count, int vertexCount) {
+        TSIntBuffer read = new TSIntBuffer(count);
+        for (int i = 0; i < count; ++i) {
+            int v = ints.get();
+            if (v < 0 || v >= vertexCount) {
+                return null;
+            }
+            read.add(v);
+        }
+        return read;
+    }
+
+    private static void update(MessageDigest digest, ByteBuffer buffer) {
+        digest.update(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,36 @@
+package trianglesolver.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class TSSolveDelta {
+
+    private final List<TSTriangle> added;
+    private final List<TSTriangle> removed;
+
+    TSSolveDelta(TSFigureStore store, TSIntBuffer added, TSIntBuffer removed) {
+        this.added = Collections.unmodifiableList(triangles(store, added));
+        this.removed = Collections.unmodifiableList(triangles(store, removed));
+    }
+
+    public List<TSTriangle> getAdded() {
+        return added;
+    }
+
+    public List<TSTriangle> getRemoved() {
+        return removed;
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+
+    private static List<TSTriangle> triangles(TSFigureStore store, TSIntBuffer indices) {
+        List<TSTriangle> list = new ArrayList<>(indices.size() / 3);
+        for (int i = 0; i < indices.size(); i += 3) {
+            list.add(new TSTriangle(store.getVertex(indices.get(i)), store.getVertex(indices.get(i + 1)), store.getVertex(indices.get(i + 2))));
+        }
+        return list;
+    }
+}
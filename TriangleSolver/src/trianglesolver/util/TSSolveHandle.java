@@ -0,0 +1,324 @@
+package trianglesolver.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+public class TSSolveHandle {
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        CANCELLED,
+        EXPIRED,
+        FAILED
+    }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    private static final boolean SAMPLED = CPU && THREADS.isThreadCpuTimeSupported(); //a snapshot reads the cpu time of other threads
+    private static final String STARTING = "Starting"; //until the worker sets the first phase, no time is recorded for it
+
+    private final TSFigureStore store;
+    private final long deadline; //System.nanoTime() based, 0 when there is no time budget
+    private final long started;
+    private volatile boolean cancelled = false;
+    private Status status = Status.RUNNING;
+    private String phase = STARTING;
+    private double progress = 0;
+    private long phaseStarted;
+    private final Map<String, Long> phases = new LinkedHashMap<>(); //nanoseconds spent in every finished phase
+    private final Map<String, Long> cpu = new LinkedHashMap<>(); //cpu nanoseconds of every thread working on a phase
+    private Thread worker = null;
+    private long workerCpu; //of the worker when the current phase started
+    private final Map<Thread, Long> running = new HashMap<>(); //pool threads in a timed task and their cpu time when it started
+    private long pairsExamined = 0;
+    private long projections = 0;
+    private long collinearRejected = 0;
+    private long workDone = 0; //work units of the current phase
+    private long workTotal = 0;
+    private long finished = 0;
+    private Throwable failure = null;
+    private TSSolveDelta delta = null;
+    private final TSIntBuffer triangles = new TSIntBuffer();
+    private final boolean retain; //false when the triangles are only streamed to the updater
+    private int found = 0;
+
+    TSSolveHandle(TSFigureStore store, long budget, TimeUnit unit, boolean retain) {
+        this.store = store;
+        this.retain = retain;
+        started = System.nanoTime();
+        phaseStarted = started;
+        deadline = budget > 0 ? started + unit.toNanos(budget) : 0;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isStopRequested() {
+        return cancelled || (deadline != 0 && System.nanoTime() - deadline > 0);
+    }
+
+    synchronized public boolean isDone() {
+        return status != Status.RUNNING;
+    }
+
+    synchronized public Status getStatus() {
+        return status;
+    }
+
+    synchronized public String getPhase() {
+        return phase;
+    }
+
+    synchronized public double getProgress() {
+        //of the current phase, counted in work units when the phase knows their total
+        if (status == Status.RUNNING && workTotal > 0) {
+            return Math.min(1, (double) workDone / workTotal);
+        }
+        return progress;
+    }
+
+    synchronized public int getTrianglesFound() {
+        return found;
+    }
+
+    synchronized public Map<String, Long> getPhaseTimes(TimeUnit unit) {
+        //time spent in every phase in the order they started, the current one included while running
+        Map<String, Long> times = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> e : phases.entrySet()) {
+            times.put(e.getKey(), unit.convert(e.getValue(), TimeUnit.NANOSECONDS));
+        }
+        if (status == Status.RUNNING && !isStarting()) {
+            Long before = phases.get(phase);
+            long spent = System.nanoTime() - phaseStarted + (before == null ? 0 : before);
+            times.put(phase, unit.convert(spent, TimeUnit.NANOSECONDS));
+        }
+        return times;
+    }
+
+    synchronized public TSSolveMetrics getMetrics() {
+        //snapshot of the times per phase, the counters and the work of the current phase
+        //the cpu time of the current phase is sampled from the worker and every pool thread still running a task of it
+        long now = System.nanoTime();
+        Map<String, Long> wall = new LinkedHashMap<>(phases);
+        Map<String, Long> spent = new LinkedHashMap<>(cpu);
+        if (status == Status.RUNNING && !isStarting()) {
+            add(wall, phase, now - phaseStarted);
+            if (worker != null) {
+                add(spent, phase, cpuTime(worker, workerCpu));
+            }
+            for (Map.Entry<Thread, Long> task : running.entrySet()) {
+                add(spent, phase, cpuTime(task.getKey(), task.getValue()));
+            }
+        }
+        long end = status == Status.RUNNING ? now : finished;
+        return new TSSolveMetrics(status, phase, wall, spent, end - started,
+                new long[]{pairsExamined, projections, collinearRejected, found}, workDone, workTotal, now - phaseStarted);
+    }
+
+    synchronized public Throwable getFailure() {
+        return failure;
+    }
+
+    synchronized public TSSolveDelta getDelta() {
+        //changes against the previous solve when the figure was solved incrementally, null otherwise
+        return delta;
+    }
+
+    synchronized public long getElapsed(TimeUnit unit) {
+        long end = status == Status.RUNNING ? System.nanoTime() : finished;
+        return unit.convert(end - started, TimeUnit.NANOSECONDS);
+    }
+
+    synchronized public List<TSTriangle> getTriangles() {
+        //triangles found so far, the complete result once the status is COMPLETED, empty when the figure doesn't retain them
+        List<TSTriangle> list = new ArrayList<>(triangles.size() / 3);
+        for (int i = 0; i < triangles.size(); i += 3) {
+            list.add(new TSTriangle(store.getVertex(triangles.get(i)), store.getVertex(triangles.get(i + 1)), store.getVertex(triangles.get(i + 2))));
+        }
+        return list;
+    }
+
+    synchronized public int[] getTriangleIndices() {
+        return triangles.toArray();
+    }
+
+    synchronized public void await() throws InterruptedException {
+        while (status == Status.RUNNING) {
+            wait();
+        }
+    }
+
+    synchronized public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        long end = System.nanoTime() + unit.toNanos(timeout);
+        while (status == Status.RUNNING) {
+            long left = end - System.nanoTime();
+            if (left <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, left);
+        }
+        return true;
+    }
+
+    void checkStop() {
+        if (isStopRequested()) {
+            throw new CancellationException("Solving stopped");
+        }
+    }
+
+    synchronized void start() {
+        //called by the thread running the solve, its cpu time is measured from here
+        worker = Thread.currentThread();
+        workerCpu = CPU ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    synchronized void setPhase(String phase, double progress) {
+        if (!phase.equals(this.phase)) {
+            endPhase(System.nanoTime());
+            workDone = 0;
+            workTotal = 0;
+        }
+        this.phase = phase;
+        this.progress = progress;
+    }
+
+    synchronized void addWorkTotal(long units) {
+        workTotal += units;
+    }
+
+    synchronized void addWorkDone(long units) {
+        workDone += units;
+    }
+
+    synchronized void count(long pairs, long projected, long collinear) {
+        pairsExamined += pairs;
+        projections += projected;
+        collinearRejected += collinear;
+    }
+
+    <T> Callable<T> timed(final Callable<T> task) {
+        //adds the cpu time of a pool thread running the task to the current phase, the worker's own is measured per phase
+        if (!CPU) {
+            return task;
+        }
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                if (Thread.currentThread() == getWorker()) {
+                    return task.call();
+                }
+                long before = THREADS.getCurrentThreadCpuTime();
+                running(before);
+                try {
+                    return task.call();
+                } finally {
+                    addCpu(THREADS.getCurrentThreadCpuTime() - before);
+                }
+            }
+        };
+    }
+
+    synchronized void addTriangle(int a, int b, int c) {
+        found++;
+        if (!retain) {
+            return;
+        }
+        triangles.add(a);
+        triangles.add(b);
+        triangles.add(c);
+    }
+
+    synchronized void addTriangles(TSIntBuffer found) {
+        this.found += found.size() / 3;
+        if (retain) {
+            triangles.addAll(found);
+        }
+    }
+
+    synchronized void setDelta(TSSolveDelta delta) {
+        this.delta = delta;
+    }
+
+    synchronized void finish(boolean stopped, Throwable ex) {
+        if (status != Status.RUNNING) {
+            return;
+        }
+        if (ex != null && !(ex instanceof CancellationException)) {
+            status = Status.FAILED;
+            failure = ex;
+        }
+        else if (stopped || ex != null) {
+            status = cancelled ? Status.CANCELLED : Status.EXPIRED;
+        }
+        else {
+            status = Status.COMPLETED;
+            progress = 1;
+        }
+        finished = System.nanoTime();
+        endPhase(finished);
+        notifyAll();
+    }
+
+    private synchronized Thread getWorker() {
+        return worker;
+    }
+
+    private synchronized void running(long before) {
+        running.put(Thread.currentThread(), before);
+    }
+
+    private synchronized void addCpu(long spent) {
+        running.remove(Thread.currentThread());
+        if (!isStarting()) {
+            add(cpu, phase, spent);
+        }
+    }
+
+    private boolean isStarting() {
+        return phase == STARTING;
+    }
+
+    private void endPhase(long now) {
+        if (!isStarting()) {
+            add(phases, phase, now - phaseStarted);
+        }
+        phaseStarted = now;
+        if (CPU && worker != null && Thread.currentThread() == worker) {
+            long spent = THREADS.getCurrentThreadCpuTime();
+            if (!isStarting()) {
+                add(cpu, phase, spent - workerCpu);
+            }
+            workerCpu = spent;
+        }
+    }
+
+    private static long cpuTime(Thread thread, long before) {
+        //spent by the thread since before, 0 when it can't be read from here or the thread is gone
+        if (!CPU) {
+            return 0;
+        }
+        if (thread == Thread.currentThread()) {
+            return THREADS.getCurrentThreadCpuTime() - before;
+        }
+        if (!SAMPLED) {
+            return 0;
+        }
+        long now = THREADS.getThreadCpuTime(thread.getId());
+        return now < 0 ? 0 : Math.max(0, now - before);
+    }
+
+    private static void add(Map<String, Long> times, String phase, long spent) {
+        Long before = times.get(phase);
+        times.put(phase, spent + (before == null ? 0 : before));
+    }
+}
@@ -0,0 +1,137 @@
+package trianglesolver.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class TSSolveMetrics {
+
+    //what a solve did up to the moment it was taken, never changes afterwards
+    private final TSSolveHandle.Status status;
+    private final String phase;
+    private final Map<String, Long> wall; //nanoseconds per phase in the order they started
+    private final Map<String, Long> cpu; //nanoseconds of every thread working on the phase, empty when the JVM can't measure it
+    private final long elapsed;
+    private final long pairsExamined;
+    private final long projections;
+    private final long collinearRejected;
+    private final long trianglesEmitted;
+    private final long workDone;
+    private final long workTotal;
+    private final long phaseElapsed;
+
+    TSSolveMetrics(TSSolveHandle.Status status, String phase, Map<String, Long> wall, Map<String, Long> cpu, long elapsed,
+            long[] counters, long workDone, long workTotal, long phaseElapsed) {
+        this.status = status;
+        this.phase = phase;
+        this.wall = wall;
+        this.cpu = cpu;
+        this.elapsed = elapsed;
+        this.pairsExamined = counters[0];
+        this.projections = counters[1];
+        this.collinearRejected = counters[2];
+        this.trianglesEmitted = counters[3];
+        this.workDone = workDone;
+        this.workTotal = workTotal;
+        this.phaseElapsed = phaseElapsed;
+    }
+
+    public TSSolveHandle.Status getStatus() {
+        return status;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public Map<String, Long> getWallTimes(TimeUnit unit) {
+        return convert(wall, unit);
+    }
+
+    public Map<String, Long> getCpuTimes(TimeUnit unit) {
+        //the current phase of a running solve as sampled from the worker and the pool threads busy with it when the snapshot was taken
+        return convert(cpu, unit);
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsed, TimeUnit.NANOSECONDS);
+    }
+
+    public long getPairsExamined() {
+        //segment pairs meeting at a vertex tried for a straight link, and pairs of triangle sides tried for a closing one
+        return pairsExamined;
+    }
+
+    public long getProjections() {
+        //tests whether a vertex lies on a segment
+        return projections;
+    }
+
+    public long getCollinearRejected() {
+        //closed triangles dropped because a corner lies on the opposite side
+        return collinearRejected;
+    }
+
+    public long getTrianglesEmitted() {
+        return trianglesEmitted;
+    }
+
+    public long getWorkDone() {
+        //work units of the current phase, only phases which know their total count them
+        return workDone;
+    }
+
+    public long getWorkTotal() {
+        return workTotal;
+    }
+
+    public boolean isDeterminate() {
+        return workTotal > 0;
+    }
+
+    public double getProgress() {
+        //of the current phase, -1 when it doesn't know its total
+        if (status == TSSolveHandle.Status.COMPLETED) {
+            return 1;
+        }
+        return workTotal > 0 ? Math.min(1, (double) workDone / workTotal) : -1;
+    }
+
+    public long getRemaining(TimeUnit unit) {
+        //of the current phase at the rate it went so far, -1 until that rate is known
+        if (status != TSSolveHandle.Status.RUNNING) {
+            return 0;
+        }
+        if (workTotal <= 0 || workDone <= 0) {
+            return -1;
+        }
+        double left = (double) phaseElapsed * Math.max(0, workTotal - workDone) / workDone;
+        return unit.convert((long) left, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("status: ").append(status).append(", phase: ").append(phase);
+        for (Map.Entry<String, Long> e : wall.entrySet()) {
+            Long spent = cpu.get(e.getKey());
+            sb.append("\n  ").append(e.getKey()).append(": ").append(e.getValue() / 1000 / 1000.0).append(" ms wall");
+            if (spent != null) {
+                sb.append(", ").append(spent / 1000 / 1000.0).append(" ms cpu");
+            }
+        }
+        sb.append("\npairs examined: ").append(pairsExamined);
+        sb.append(", projections: ").append(projections);
+        sb.append(", rejected as collinear: ").append(collinearRejected);
+        sb.append(", triangles emitted: ").append(trianglesEmitted);
+        return sb.toString();
+    }
+
+    private static Map<String, Long> convert(Map<String, Long> times, TimeUnit unit) {
+        Map<String, Long> converted = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> e : times.entrySet()) {
+            converted.put(e.getKey(), unit.convert(e.getValue(), TimeUnit.NANOSECONDS));
+        }
+        return converted;
+    }
+}
@@ -0,0 +1,31 @@
+package trianglesolver.util;
+
+import java.util.Map;
+
+public interface TSSolverMXBean {
+
+    //the latest solve started in this JVM, registered as trianglesolver:type=Solver once a management agent runs
+    long getSolves();
+
+    String getStatus();
+
+    String getPhase();
+
+    double getProgress();
+
+    long getRemainingMillis();
+
+    long getElapsedMillis();
+
+    Map<String, Long> getPhaseWallMillis();
+
+    Map<String, Long> getPhaseCpuMillis();
+
+    long getPairsExamined();
+
+    long getProjections();
+
+    long getCollinearRejected();
+
+    long getTrianglesEmitted();
+}
@@ -0,0 +1,143 @@
+package trianglesolver.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+class TSSolverMonitor implements TSSolverMXBean {
+
+    private static final String NAME = "trianglesolver:type=Solver";
+    private static final String ENABLED = "trianglesolver.jmx"; //-Dtrianglesolver.jmx=true registers the bean with the first solve
+    private static TSSolverMonitor instance = null;
+    private static boolean registered = false;
+
+    private WeakReference<TSSolveHandle> latest = new WeakReference<>(null); //a running solve doesn't stay in memory for the bean
+    private TSSolveMetrics last = null; //of the latest solve once it finished, kept after its handle is gone
+    private long solves = 0;
+
+    private TSSolverMonitor() {
+    }
+
+    static synchronized void watch(TSSolveHandle handle) {
+        //registered when asked for or once a management agent runs, starting the platform server
+        //only for the bean takes longer than many solves, so jconsole attached later sees it from the next solve on
+        if (instance == null) {
+            instance = new TSSolverMonitor();
+        }
+        if (!registered) {
+            try {
+                if (Boolean.getBoolean(ENABLED) || !MBeanServerFactory.findMBeanServer(null).isEmpty()) {
+                    ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(NAME));
+                    registered = true;
+                }
+            } catch (JMException | SecurityException ex) { //the solver works the same, only without the bean
+                Logger.getLogger(TSSolverMonitor.class.getName()).log(Level.WARNING, null, ex);
+                registered = true;
+            }
+        }
+        instance.started(handle);
+    }
+
+    static synchronized void finished(TSSolveHandle handle) {
+        if (instance != null) {
+            instance.ended(handle);
+        }
+    }
+
+    private synchronized void started(TSSolveHandle handle) {
+        latest = new WeakReference<>(handle);
+        last = null;
+        solves++;
+    }
+
+    private synchronized void ended(TSSolveHandle handle) {
+        //a solve started later replaced it already
+        if (latest.get() == handle) {
+            last = handle.getMetrics();
+            latest = new WeakReference<>(null);
+        }
+    }
+
+    private synchronized TSSolveMetrics metrics() {
+        TSSolveHandle handle = latest.get();
+        return handle == null ? last : handle.getMetrics();
+    }
+
+    @Override
+    public synchronized long getSolves() {
+        return solves;
+    }
+
+    @Override
+    public String getStatus() {
+        TSSolveMetrics m = metrics();
+        return m == null ? "" : m.getStatus().toString();
+    }
+
+    @Override
+    public String getPhase() {
+        TSSolveMetrics m = metrics();
+        return m == null ? "" : m.getPhase();
+    }
+
+    @Override
+    public double getProgress() {
+        TSSolveMetrics m = metrics();
+        return m == null ? -1 : m.getProgress();
+    }
+
+    @Override
+    public long getRemainingMillis() {
+        TSSolveMetrics m = metrics();
+        return m == null ? -1 : m.getRemaining(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        TSSolveMetrics m = metrics();
+        return m == null ? 0 : m.getElapsed(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseWallMillis() {
+        TSSolveMetrics m = metrics();
+        return m == null ? Collections.<String, Long>emptyMap() : m.getWallTimes(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseCpuMillis() {
+        TSSolveMetrics m = metrics();
+        return m == null ? Collections.<String, Long>emptyMap() : m.getCpuTimes(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getPairsExamined() {
+        TSSolveMetrics m = metrics();
+        return m == null ? 0 : m.getPairsExamined();
+    }
+
+    @Override
+    public long getProjections() {
+        TSSolveMetrics m = metrics();
+        return m == null ? 0 : m.getProjections();
+    }
+
+    @Override
+    public long getCollinearRejected() {
+        TSSolveMetrics m = metrics();
+        return m == null ? 0 : m.getCollinearRejected();
+    }
+
+    @Override
+    public long getTrianglesEmitted() {
+        TSSolveMetrics m = metrics();
+        return m == null ? 0 : m.getTrianglesEmitted();
+    }
+}
@@ -0,0 +1,174 @@
+package trianglesolver.util;
+
+import java.util.Arrays;
+
+public class TSTriangleEnumerator {
+
+    private static final long REPORTED_WORK = 1 << 16; //work units done before the handle hears about them
+
+    private final double tolerance;
+    private final TSFigureStore store;
+    private final TSIntBuffer segments; //pairs of vertex indices into the store
+    private final int[] vertex; //store indices of vertices ordered by degree
+    private final int[] offset; //forward adjacency of each vertex, only neighbours with higher order
+    private final int[] target;
+    private final int[] through;
+    private final long[] work; //prefix sums of the work per vertex, itself and the neighbours of its neighbours
+    private final TSSolveHandle handle;
+
+    public TSTriangleEnumerator(TSFigureStore store, TSIntBuffer segments, double tolerance) {
+        this(store, segments, tolerance, null);
+    }
+
+    public TSTriangleEnumerator(TSFigureStore store, TSIntBuffer segments, double tolerance, TSSolveHandle handle) {
+        this.tolerance = tolerance;
+        this.handle = handle;
+        this.store = store;
+        this.segments = segments;
+
+        final int size = store.getVertexCount();
+        int count = segments.size() / 2;
+        final int[] degree = new int[size];
+        for (int s = 0; s < count; ++s) {
+            degree[segments.get(2 * s)]++;
+            degree[segments.get(2 * s + 1)]++;
+        }
+        long[] order = new long[size];
+        for (int v = 0; v < size; ++v) {
+            order[v] = ((long) degree[v] << 32) | v;
+        }
+        Arrays.sort(order);
+        int[] rank = new int[size];
+        vertex = new int[size];
+        for (int r = 0; r < size; ++r) {
+            vertex[r] = (int) order[r];
+            rank[vertex[r]] = r;
+        }
+
+        //orient every segment from the lower to the higher ranked vertex
+        offset = new int[size + 1];
+        for (int s = 0; s < count; ++s) {
+            int a = segments.get(2 * s);
+            int b = segments.get(2 * s + 1);
+            if (a != b) {
+                offset[Math.min(rank[a], rank[b]) + 1]++;
+            }
+        }
+        for (int r = 0; r < size; ++r) {
+            offset[r + 1] += offset[r];
+        }
+        int edges = offset[size];
+        long[] entries = new long[edges];
+        int[] fill = Arrays.copyOf(offset, size);
+        for (int s = 0; s < count; ++s) {
+            int a = segments.get(2 * s);
+            int b = segments.get(2 * s + 1);
+            if (a == b) {
+                continue;
+            }
+            int low = Math.min(rank[a], rank[b]);
+            int high = Math.max(rank[a], rank[b]);
+            entries[fill[low]++] = ((long) high << 32) | s;
+        }
+        target = new int[edges];
+        through = new int[edges];
+        for (int r = 0; r < size; ++r) {
+            Arrays.sort(entries, offset[r], offset[r + 1]);
+            for (int i = offset[r]; i < offset[r + 1]; ++i) {
+                target[i] = (int) (entries[i] >>> 32);
+                through[i] = (int) entries[i];
+            }
+        }
+        work = new long[size + 1];
+        for (int u = 0; u < size; ++u) {
+            work[u + 1] = work[u] + 1;
+            for (int i = offset[u]; i < offset[u + 1]; ++i) {
+                work[u + 1] += offset[target[i] + 1] - offset[target[i]];
+            }
+        }
+    }
+
+    public int getVertexCount() {
+        return vertex.length;
+    }
+
+    public long getWork() {
+        //work units of a full enumeration, the progress of the solve is counted in them
+        return work[vertex.length];
+    }
+
+    public int[] partition(int chunks) {
+        //split the vertex order into ranges of about the same amount of work
+        int size = vertex.length;
+        int[] bounds = new int[chunks + 1];
+        int u = 0;
+        for (int c = 1; c < chunks; ++c) {
+            long limit = work[size] * c / chunks;
+            while (u < size && work[u] < limit) {
+                u++;
+            }
+            bounds[c] = u;
+        }
+        bounds[chunks] = size;
+        return bounds;
+    }
+
+    public int enumerate(int from, int to, TSIntBuffer out) {
+        //out receives triples of vertex indices into the store, returns where it stopped when the solve was stopped
+        int[] mark = new int[vertex.length];
+        Arrays.fill(mark, -1);
+        long pairs = 0;
+        long projections = 0;
+        long collinear = 0;
+        int reported = from;
+        for (int u = from; u < to; ++u) {
+            if (handle != null && work[u] - work[reported] >= REPORTED_WORK) {
+                handle.addWorkDone(work[u] - work[reported]);
+                reported = u;
+            }
+            if (handle != null && handle.isStopRequested()) {
+                handle.addWorkDone(work[u] - work[reported]);
+                handle.count(pairs, projections, collinear);
+                return u;
+            }
+            for (int i = offset[u]; i < offset[u + 1]; ++i) {
+                if (mark[target[i]] == -1) { //keep the first of duplicated segments
+                    mark[target[i]] = through[i];
+                }
+            }
+            for (int i = offset[u]; i < offset[u + 1]; ++i) {
+                int v = target[i];
+                if (mark[v] != through[i]) {
+                    continue;
+                }
+                pairs += offset[v + 1] - offset[v];
+                for (int j = offset[v]; j < offset[v + 1]; ++j) {
+                    int w = target[j];
+                    if (mark[w] != -1 && (j == offset[v] || target[j - 1] != w)) {
+                        int rejected = isOnSide(vertex[u], through[j]) ? 1 : isOnSide(vertex[v], mark[w]) ? 2 : isOnSide(vertex[w], through[i]) ? 3 : 0;
+                        projections += rejected == 0 ? 3 : rejected;
+                        if (rejected != 0) {
+                            collinear++;
+                            continue;
+                        }
+                        out.add(vertex[u]);
+                        out.add(vertex[v]);
+                        out.add(vertex[w]);
+                    }
+                }
+            }
+            for (int i = offset[u]; i < offset[u + 1]; ++i) {
+                mark[target[i]] = -1;
+            }
+        }
+        if (handle != null) {
+            handle.addWorkDone(work[to] - work[reported]);
+            handle.count(pairs, projections, collinear);
+        }
+        return to;
+    }
+
+    private boolean isOnSide(int v, int side) {
+        return store.isBetween(v, segments.get(2 * side), segments.get(2 * side + 1), tolerance);
+    }
+}
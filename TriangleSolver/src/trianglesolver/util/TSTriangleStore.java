@@ -0,0 +1,275 @@
+package trianglesolver.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+public class TSTriangleStore {
+
+    private final Map<TSVertex, Integer> ids = new IdentityHashMap<>();
+    private final List<TSVertex> vertices = new ArrayList<>();
+    private final List<TSTriangle> triangles = new ArrayList<>();
+    private final TSIntBuffer keys = new TSIntBuffer(); //sorted vertex ids of every triangle
+    private double[] areas = new double[16];
+    private int[] table = new int[16]; //open addressing over triangle index + 1
+    private TSIntBuffer[] byVertex = null;
+
+    public boolean add(TSTriangle triangle) {
+        int a = id(triangle.getVertexA());
+        int b = id(triangle.getVertexB());
+        int c = id(triangle.getVertexC());
+        int t;
+        if (a > b) {
+            t = a;
+            a = b;
+            b = t;
+        }
+        if (b > c) {
+            t = b;
+            b = c;
+            c = t;
+        }
+        if (a > b) {
+            t = a;
+            a = b;
+            b = t;
+        }
+        if (find(a, b, c) >= 0) {
+            return false;
+        }
+        int index = triangles.size();
+        triangles.add(triangle);
+        keys.add(a);
+        keys.add(b);
+        keys.add(c);
+        if (index == areas.length) {
+            areas = Arrays.copyOf(areas, areas.length * 2);
+        }
+        areas[index] = area(triangle);
+        if ((index + 1) * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        else {
+            insert(index);
+        }
+        if (byVertex != null) {
+            index(index);
+        }
+        return true;
+    }
+
+    public int size() {
+        return triangles.size();
+    }
+
+    public boolean isEmpty() {
+        return triangles.isEmpty();
+    }
+
+    public TSTriangle get(int index) {
+        return triangles.get(index);
+    }
+
+    public double getArea(int index) {
+        if (index >= triangles.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + triangles.size());
+        }
+        return areas[index];
+    }
+
+    public int indexOf(TSTriangle triangle) {
+        Integer a = ids.get(triangle.getVertexA());
+        Integer b = ids.get(triangle.getVertexB());
+        Integer c = ids.get(triangle.getVertexC());
+        if (a == null || b == null || c == null) {
+            return -1;
+        }
+        int[] k = new int[]{a, b, c};
+        Arrays.sort(k);
+        return find(k[0], k[1], k[2]);
+    }
+
+    public boolean contains(TSTriangle triangle) {
+        return indexOf(triangle) >= 0;
+    }
+
+    public void clear() {
+        ids.clear();
+        vertices.clear();
+        triangles.clear();
+        keys.clear();
+        areas = new double[16];
+        table = new int[16];
+        byVertex = null;
+    }
+
+    public int[] findByVertex(TSVertex v) {
+        Integer id = ids.get(v);
+        if (id == null) {
+            return new int[0];
+        }
+        TSIntBuffer found = byVertex(id);
+        return found == null ? new int[0] : found.toArray();
+    }
+
+    public int[] findBySegment(TSVertex a, TSVertex b) {
+        Integer idA = ids.get(a);
+        Integer idB = ids.get(b);
+        if (idA == null || idB == null || byVertex(idA) == null || byVertex(idB) == null) {
+            return new int[0];
+        }
+        //walk the shorter of both vertex lists
+        TSIntBuffer around = byVertex[idA].size() <= byVertex[idB].size() ? byVertex[idA] : byVertex[idB];
+        int other = around == byVertex[idA] ? idB : idA;
+        TSIntBuffer found = new TSIntBuffer();
+        for (int i = 0; i < around.size(); ++i) {
+            int t = around.get(i);
+            if (keys.get(3 * t) == other || keys.get(3 * t + 1) == other || keys.get(3 * t + 2) == other) {
+                found.add(t);
+            }
+        }
+        return found.toArray();
+    }
+
+    public int[] sortByArea(boolean descending) {
+        //stable merge sort of the indices, equal areas keep the order in which they were found
+        int size = triangles.size();
+        int[] sorted = new int[size];
+        int[] buffer = new int[size];
+        for (int i = 0; i < size; ++i) {
+            sorted[i] = i;
+        }
+        for (int width = 1; width < size; width *= 2) {
+            for (int from = 0; from < size; from += 2 * width) {
+                int middle = Math.min(from + width, size);
+                int to = Math.min(from + 2 * width, size);
+                int i = from;
+                int j = middle;
+                for (int k = from; k < to; ++k) {
+                    if (j >= to || (i < middle && !isBefore(sorted[j], sorted[i], descending))) {
+                        buffer[k] = sorted[i++];
+                    }
+                    else {
+                        buffer[k] = sorted[j++];
+                    }
+                }
+            }
+            int[] swap = sorted;
+            sorted = buffer;
+            buffer = swap;
+        }
+        return sorted;
+    }
+
+    public int[] filterByArea(double min, double max) {
+        TSIntBuffer found = new TSIntBuffer();
+        for (int i = 0; i < triangles.size(); ++i) {
+            if (min <= areas[i] && areas[i] <= max) {
+                found.add(i);
+            }
+        }
+        return found.toArray();
+    }
+
+    public List<TSTriangle> asList() {
+        return new TSTriangleList();
+    }
+
+    private int id(TSVertex v) {
+        Integer id = ids.get(v);
+        if (id == null) {
+            id = vertices.size();
+            ids.put(v, id);
+            vertices.add(v);
+        }
+        return id;
+    }
+
+    private int find(int a, int b, int c) {
+        int mask = table.length - 1;
+        int i = hash(a, b, c) & mask;
+        while (table[i] != 0) {
+            int t = table[i] - 1;
+            if (keys.get(3 * t) == a && keys.get(3 * t + 1) == b && keys.get(3 * t + 2) == c) {
+                return t;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(int t) {
+        int mask = table.length - 1;
+        int i = hash(keys.get(3 * t), keys.get(3 * t + 1), keys.get(3 * t + 2)) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = t + 1;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        for (int t = 0; t < triangles.size(); ++t) {
+            insert(t);
+        }
+    }
+
+    private TSIntBuffer byVertex(int id) {
+        if (byVertex == null) {
+            byVertex = new TSIntBuffer[Math.max(16, vertices.size())];
+            for (int t = 0; t < triangles.size(); ++t) {
+                index(t);
+            }
+        }
+        return id < byVertex.length ? byVertex[id] : null;
+    }
+
+    private void index(int t) {
+        int c = keys.get(3 * t + 2);
+        if (c >= byVertex.length) {
+            byVertex = Arrays.copyOf(byVertex, Math.max(byVertex.length * 2, c + 1));
+        }
+        for (int i = 0; i < 3; ++i) {
+            int v = keys.get(3 * t + i);
+            if (byVertex[v] == null) {
+                byVertex[v] = new TSIntBuffer(4);
+            }
+            byVertex[v].add(t);
+        }
+    }
+
+    private boolean isBefore(int t1, int t2, boolean descending) {
+        return descending ? areas[t1] > areas[t2] : areas[t1] < areas[t2];
+    }
+
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9E3779B1 + b;
+        h = h * 0x9E3779B1 + c;
+        return h ^ (h >>> 16);
+    }
+
+    private static double area(TSTriangle t) {
+        double abx = t.getVertexB().getX() - t.getVertexA().getX();
+        double aby = t.getVertexB().getY() - t.getVertexA().getY();
+        double acx = t.getVertexC().getX() - t.getVertexA().getX();
+        double acy = t.getVertexC().getY() - t.getVertexA().getY();
+        return Math.abs(abx * acy - aby * acx) / 2;
+    }
+
+    private class TSTriangleList extends AbstractList<TSTriangle> implements RandomAccess {
+
+        @Override
+        public TSTriangle get(int index) {
+            return triangles.get(index);
+        }
+
+        @Override
+        public int size() {
+            return triangles.size();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package trianglesolver.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import trianglesolver.gui.IndexedStatusUpdater;
+
+public class TSTriangleWriter implements IndexedStatusUpdater, Closeable {
+
+    public enum Format {
+        BINARY, //big endian int triples like the indices in .ts files, 12 bytes per triangle
+        CSV //header line "a,b,c" and one line per triangle
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int LINE_SIZE = 3 * 11 + 3; //three ints of at most 11 characters, two commas and the newline
+
+    private final FileChannel channel;
+    private final Format format;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final byte[] digits = new byte[11]; //of one index, written from the back
+    private TSFigureStore store = null;
+    private long written = 0;
+    private IOException error = null;
+    private boolean closed = false;
+
+    public TSTriangleWriter(Path file, Format format) throws IOException {
+        this.format = format;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        if (format == Format.CSV) {
+            put("a,b,c\n");
+        }
+    }
+
+    @Override
+    synchronized public void updateIndices(String msg, TSFigureStore store, TSIntBuffer triangles) {
+        this.store = store;
+        for (int i = 0; i < triangles.size(); i += 3) {
+            write(triangles.get(i), triangles.get(i + 1), triangles.get(i + 2));
+        }
+    }
+
+    @Override
+    synchronized public void update(String msg, TSTriangle triangle) {
+        if (triangle == null) {
+            return;
+        }
+        if (store == null) {
+            throw new IllegalStateException("Triangle without a figure store");
+        }
+        write(store.indexOf(triangle.getVertexA()), store.indexOf(triangle.getVertexB()), store.indexOf(triangle.getVertexC()));
+    }
+
+    @Override
+    synchronized public void finish() {
+        try {
+            close();
+        } catch (IOException ex) {
+            //kept in error, close() reports it again
+        }
+    }
+
+    synchronized public long getWritten() {
+        return written;
+    }
+
+    @Override
+    synchronized public void close() throws IOException {
+        //the first write error is thrown here, a solve can't be stopped by the sink
+        if (!closed) {
+            closed = true;
+            try {
+                flush();
+                channel.close();
+            } catch (IOException ex) {
+                if (error == null) {
+                    error = ex;
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void write(int a, int b, int c) {
+        if (closed || error != null) {
+            return;
+        }
+        if (format == Format.BINARY) {
+            if (buffer.remaining() < 12) {
+                flush();
+            }
+            buffer.putInt(a).putInt(b).putInt(c);
+        }
+        else { //ASCII straight into the buffer, no string per triangle
+            if (buffer.remaining() < LINE_SIZE) {
+                flush();
+            }
+            putIndex(a);
+            buffer.put((byte) ',');
+            putIndex(b);
+            buffer.put((byte) ',');
+            putIndex(c);
+            buffer.put((byte) '\n');
+        }
+        written++;
+    }
+
+    private void put(String text) {
+        if (buffer.remaining() < text.length()) {
+            flush();
+        }
+        for (int i = 0; i < text.length(); ++i) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    private void putIndex(int index) {
+        long value = Math.abs((long) index); //Integer.MIN_VALUE has no positive int
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        if (index < 0) {
+            digits[--start] = '-';
+        }
+        buffer.put(digits, start, digits.length - start);
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException ex) {
+            if (error == null) {
+                error = ex;
+            }
+        }
+        buffer.clear();
+    }
+}